@@ -0,0 +1,14 @@
+--
+-- Buffer cache and disk reads of the articles table and its TOAST storage.
+-- Run before and after exercising the listing and comment endpoints and compare the deltas.
+--
+
+SELECT relname,
+       heap_blks_read,
+       heap_blks_hit,
+       toast_blks_read,
+       toast_blks_hit,
+       pg_size_pretty(pg_relation_size(relid)) AS heap_size,
+       pg_size_pretty(pg_total_relation_size(relid) - pg_relation_size(relid)) AS toast_and_index_size
+FROM pg_statio_user_tables
+WHERE relname IN ('articles', 'comments');
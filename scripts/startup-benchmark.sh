@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-request and resident memory for each startup mode:
+#   jar      - plain executable jar
+#   cds      - extracted jar with an AppCDS archive
+#   aot-cds  - AOT-processed build, extracted, with an AppCDS archive
+#
+# The application runs with the prod profile, so the database must exist and be reachable.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+#
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+PROFILE=${SPRING_PROFILES_ACTIVE:-prod}
+URL="http://localhost:${PORT}/api/articles?ids=1"
+WORK=target/startup-benchmark
+JAR=blog-management-api-0.0.1-SNAPSHOT.jar
+
+cd "$(dirname "$0")/.."
+rm -rf "$WORK"
+mkdir -p "$WORK"
+
+# Extracts the jar into a directory layout and trains an AppCDS archive on a context refresh
+prepare_cds() {
+    local dir=$1
+    shift
+    java -Djarmode=tools -jar "target/$JAR" extract --destination "$dir" >/dev/null
+    java -XX:ArchiveClassesAtExit="$dir/app.jsa" -Dspring.context.exit=onRefresh "$@" \
+        -jar "$dir/$JAR" --spring.profiles.active="$PROFILE" >"$dir/training.log" 2>&1
+}
+
+# Starts the application, waits for the first successful request and records time and RSS
+measure() {
+    local mode=$1
+    shift
+    local start pid elapsed rss
+    start=$(date +%s%N)
+    "$@" --spring.profiles.active="$PROFILE" --server.port="$PORT" >"$WORK/$mode.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$mode failed to start, see $WORK/$mode.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed $rss" >>"$WORK/$mode.results"
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+run_mode() {
+    local mode=$1
+    shift
+    for _ in $(seq "$RUNS"); do
+        measure "$mode" "$@"
+    done
+}
+
+mvn -B -q -DskipTests package
+cp "target/$JAR" "$WORK/app.jar"
+run_mode jar java -jar "$WORK/app.jar"
+
+prepare_cds "$WORK/cds"
+run_mode cds java -XX:SharedArchiveFile="$WORK/cds/app.jsa" -jar "$WORK/cds/$JAR"
+
+mvn -B -q -DskipTests -Paot package
+prepare_cds "$WORK/aot-cds" -Dspring.aot.enabled=true
+run_mode aot-cds java -XX:SharedArchiveFile="$WORK/aot-cds/app.jsa" -Dspring.aot.enabled=true -jar "$WORK/aot-cds/$JAR"
+
+printf '%-10s %22s %16s\n' mode time-to-first-req-ms rss-kb
+for results in "$WORK"/*.results; do
+    mode=$(basename "$results" .results)
+    printf '%-10s %22s %16s\n' "$mode" \
+        "$(cut -d' ' -f1 "$results" | median)" \
+        "$(cut -d' ' -f2 "$results" | median)"
+done
@@ -0,0 +1,73 @@
+package com.nathan.blogmanagementapi.config;
+
+import com.nathan.blogmanagementapi.exception.ForbiddenException;
+import com.nathan.blogmanagementapi.exception.UnauthorizedException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Servlet filter that protects the admin API, which creates tenants and moves their data
+ * between shards. Admin requests must carry the configured token as a bearer token;
+ * without a configured token the admin API is disabled.
+ * Errors are rendered by GlobalExceptionHandler, like errors raised by controllers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class AdminTokenFilter extends OncePerRequestFilter {
+
+    private static final String ADMIN_PATH = "/api/admin/";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * The admin token as bytes, or null if none is configured.
+     */
+    private final byte[] token;
+
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public AdminTokenFilter(@Value("${blog.admin.token:}") String token,
+                            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.token = token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(ADMIN_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (token == null) {
+            exceptionResolver.resolveException(request, response, null,
+                    new ForbiddenException("The admin API is disabled; set blog.admin.token to enable it"));
+            return;
+        }
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        // Compared in constant time, so the token cannot be guessed from response times
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX) || !MessageDigest.isEqual(token,
+                authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8))) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            exceptionResolver.resolveException(request, response, null,
+                    new UnauthorizedException("A valid admin token is required"));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
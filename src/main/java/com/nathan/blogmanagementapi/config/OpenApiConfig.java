@@ -2,7 +2,6 @@ package com.nathan.blogmanagementapi.config;
 
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
-import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
 import io.swagger.v3.oas.models.servers.Server;
@@ -16,8 +15,6 @@ public class OpenApiConfig {
 
     @Bean
     public OpenAPI customOpenAPI() {
-        // Create contact information
-
         // Create license information
         License mitLicense = new License()
                 .name("MIT License")
@@ -33,7 +30,6 @@ public class OpenApiConfig {
                 .info(new Info()
                         .title("Blog Management API")
                         .version("1.0")
-                        .contact(contact)
                         .description("API for managing a blog with articles and comments. This API allows users to create, read, update, and delete blog articles and add comments to articles.")
                         .license(mitLicense))
                 .components(new Components())
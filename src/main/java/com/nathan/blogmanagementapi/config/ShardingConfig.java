@@ -0,0 +1,117 @@
+package com.nathan.blogmanagementapi.config;
+
+import com.nathan.blogmanagementapi.sharding.ShardRoutingDataSource;
+import com.nathan.blogmanagementapi.sharding.ShardingProperties;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantFence;
+import com.nathan.blogmanagementapi.sharding.TenantIdentifierResolver;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sets up the database shards: two connection pools per shard, one for tenant connections and
+ * one for everything else, each shard migrated by Flyway, behind a data source that routes
+ * every connection to the current tenant's shard.
+ * Replaces Spring Boot's single data source and its single-database Flyway migration.
+ */
+@Configuration
+@EnableConfigurationProperties({ShardingProperties.class, FlywayProperties.class})
+public class ShardingConfig {
+
+    private static final String TENANT_POOL_SUFFIX = "-tenants";
+
+    @Bean
+    public Shards shards(DataSourceProperties dataSourceProperties,
+                         ShardingProperties shardingProperties,
+                         FlywayProperties flywayProperties) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        Map<String, HikariDataSource> tenantPools = new LinkedHashMap<>();
+        try {
+            String primary = shardingProperties.getPrimaryShard();
+            pools.put(primary, pool(primary, dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(),
+                    shardingProperties.getBackgroundPoolSize()));
+            tenantPools.put(primary, pool(primary + TENANT_POOL_SUFFIX, dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(),
+                    shardingProperties.getPoolSize()));
+            migrate(pools.get(primary), 0, flywayProperties);
+
+            Set<Integer> numbers = new HashSet<>(Set.of(0));
+            for (Map.Entry<String, ShardingProperties.Shard> entry : shardingProperties.getShards().entrySet()) {
+                ShardingProperties.Shard shard = entry.getValue();
+                if (shard.getNumber() <= 0 || !numbers.add(shard.getNumber())) {
+                    throw new IllegalStateException("Shard " + entry.getKey() + " needs a unique number above 0");
+                }
+                if (shard.getUrl() == null) {
+                    throw new IllegalStateException("Shard " + entry.getKey() + " needs a url");
+                }
+                String username = shard.getUsername() != null ? shard.getUsername() : dataSourceProperties.determineUsername();
+                String password = shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword();
+                HikariDataSource pool = pool(entry.getKey(), shard.getUrl(), username, password,
+                        shardingProperties.getBackgroundPoolSize());
+                pools.put(entry.getKey(), pool);
+                tenantPools.put(entry.getKey(), pool(entry.getKey() + TENANT_POOL_SUFFIX, shard.getUrl(), username, password,
+                        shardingProperties.getPoolSize()));
+                migrate(pool, shard.getNumber(), flywayProperties);
+            }
+            return new Shards(primary, pools, tenantPools);
+        } catch (RuntimeException ex) {
+            pools.values().forEach(HikariDataSource::close);
+            tenantPools.values().forEach(HikariDataSource::close);
+            throw ex;
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(Shards shards, TenantFence tenantFence) {
+        return new ShardRoutingDataSource(shards, tenantFence);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tenantIdentifierResolverCustomizer() {
+        return properties -> properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new TenantIdentifierResolver());
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password, int size) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(size);
+        return pool;
+    }
+
+    /**
+     * Migrates one shard. The shard number is passed to the migrations as a placeholder,
+     * so each shard allocates article and comment IDs from its own range.
+     */
+    private static void migrate(DataSource shard, int number, FlywayProperties flywayProperties) {
+        Flyway.configure()
+                .dataSource(shard)
+                .locations(flywayProperties.getLocations().toArray(String[]::new))
+                .baselineOnMigrate(flywayProperties.isBaselineOnMigrate())
+                .baselineVersion(flywayProperties.getBaselineVersion())
+                .placeholders(Map.of("shard_number", String.valueOf(number)))
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,37 @@
+package com.nathan.blogmanagementapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.tracing.ObservedJacksonHttpMessageConverter;
+import com.nathan.blogmanagementapi.tracing.ParameterCountTagProvider;
+import io.micrometer.observation.ObservationRegistry;
+import net.ttddyy.observation.tracing.DataSourceObservationListener;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+        // Replaces Spring Boot's default converter so that serialization shows up in request traces
+        return new ObservedJacksonHttpMessageConverter(objectMapper, observationRegistry);
+    }
+
+    @Bean
+    public static BeanPostProcessor parameterCountingPostProcessor() {
+        // Query observations carry the number of bound parameters, which span trees report
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSourceObservationListener listener) {
+                    listener.setIncludeParameterValues(true);
+                    listener.setQueryParametersSpanTagProvider(new ParameterCountTagProvider());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,19 +1,35 @@
 package com.nathan.blogmanagementapi.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.exception.PreconditionFailedException;
+import com.nathan.blogmanagementapi.service.ArticleContentService;
 import com.nathan.blogmanagementapi.service.ArticleService;
+import com.nathan.blogmanagementapi.service.StreamingListService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -23,9 +39,15 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/articles")
 @RequiredArgsConstructor
+@Validated
 @Tag(name = "Article Management", description = "APIs for managing blog articles")
 public class ArticleController {
 
+    /**
+     * Media type of JSON Merge Patch documents (RFC 7396).
+     */
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     /**
      * Service for article operations.
      * Injected through constructor (RequiredArgsConstructor).
@@ -33,18 +55,77 @@ public class ArticleController {
     private final ArticleService articleService;
 
     /**
-     * Retrieves all articles.
+     * Service for streaming article content.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ArticleContentService articleContentService;
+
+    /**
+     * Service for writing article lists straight from the database as JSON.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final StreamingListService streamingListService;
+
+    /**
+     * Retrieves all articles, streamed from the database as they are read.
      *
-     * @return ResponseEntity containing list of articles
+     * @return ResponseEntity streaming the list of articles
      */
     @GetMapping
-    @Operation(summary = "Get all articles", description = "Returns a list of all blog articles")
+    @Operation(summary = "Get all articles", description = "Returns a list of all blog articles, ordered by ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Articles retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = ArticleDto.Response.class)))),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> getAllArticles() {
+        StreamingListService.ListWriter articles = streamingListService.openArticles();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(articles::writeTo);
+    }
+
+    /**
+     * Retrieves several articles by ID in a single call.
+     *
+     * @param ids The IDs of the articles to retrieve
+     * @return ResponseEntity containing the found articles in request order and the missing IDs
+     */
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get articles by IDs", description = "Returns the requested articles in request order and lists the IDs that were not found")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Articles retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<ArticleDto.BatchResponse> getArticlesByIds(
+            @RequestParam @Size(min = 1, max = 100, message = "Between 1 and 100 IDs can be requested at once") List<Long> ids) {
+        return ResponseEntity.ok(articleService.getArticlesByIds(ids));
+    }
+
+    /**
+     * Retrieves a page of the articles carrying the given tags.
+     *
+     * @param tags The tags to match
+     * @param mode "and" to require every tag, "or" to require at least one
+     * @param page Zero-based page number
+     * @param size Maximum number of articles per page
+     * @return ResponseEntity containing the page of matching articles
+     */
+    @GetMapping(params = {"tags", "!ids"})
+    @Operation(summary = "Get articles by tags", description = "Returns a page of the articles carrying all (mode=and) or any (mode=or) of the given tags, ordered by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Articles retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<ArticleDto.Response>> getAllArticles() {
-        return ResponseEntity.ok(articleService.getAllArticles());
+    public ResponseEntity<ArticleDto.PageResponse> getArticlesByTags(
+            @RequestParam @Size(min = 1, max = 10, message = "Between 1 and 10 tags can be matched at once") List<String> tags,
+            @RequestParam(defaultValue = "and") @Pattern(regexp = "(?i)and|or", message = "Mode must be 'and' or 'or'") String mode,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+        return ResponseEntity.ok(articleService.getArticlesByTags(tags, "and".equalsIgnoreCase(mode), page, size));
     }
 
     /**
@@ -61,7 +142,48 @@ public class ArticleController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<ArticleDto.DetailedResponse> getArticleById(@PathVariable Long id) {
-        return ResponseEntity.ok(articleService.getArticleById(id));
+        ArticleDto.DetailedResponse article = articleService.getArticleById(id);
+        return okWithETag(article, article.getVersion());
+    }
+
+    /**
+     * Streams the content of an article as plain text.
+     *
+     * @param id The ID of the article
+     * @return ResponseEntity streaming the article content
+     */
+    @GetMapping(value = "/{id}/content", produces = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8")
+    @Operation(summary = "Download article content", description = "Streams the content of an article as plain text, for bodies too large to handle as JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Content streamed successfully"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> getArticleContent(@PathVariable Long id) {
+        ArticleContentService.ContentWriter content = articleContentService.openContent(id);
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(content::writeTo);
+    }
+
+    /**
+     * Replaces the content of an article with a plain text body.
+     *
+     * @param id The ID of the article
+     * @param content The new content as a UTF-8 stream
+     * @return ResponseEntity with no content
+     */
+    @PutMapping(value = "/{id}/content", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Upload article content", description = "Replaces the content of an article with a plain text body, streamed to the database")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Content replaced successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<Void> replaceArticleContent(@PathVariable Long id, InputStream content) throws IOException {
+        articleContentService.replaceContent(id, content);
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -100,7 +222,33 @@ public class ArticleController {
     public ResponseEntity<ArticleDto.Response> updateArticle(
             @PathVariable Long id,
             @Valid @RequestBody ArticleDto.Request articleRequest) {
-        return ResponseEntity.ok(articleService.updateArticle(id, articleRequest));
+        ArticleDto.Response article = articleService.updateArticle(id, articleRequest);
+        return okWithETag(article, article.getVersion());
+    }
+
+    /**
+     * Partially updates an article with a JSON Merge Patch.
+     *
+     * @param id The ID of the article to patch
+     * @param ifMatch ETag of the version the patch is based on, if the client wants it checked
+     * @param patch The merge patch document
+     * @return ResponseEntity containing the patched article
+     */
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON_VALUE)
+    @Operation(summary = "Patch an article", description = "Applies a JSON Merge Patch (RFC 7396) to an article; only changed fields are written, and a patch that changes nothing writes nothing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Article patched successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "412", description = "Article was modified since the version given in If-Match"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<ArticleDto.Response> patchArticle(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch) {
+        ArticleDto.Response article = articleService.patchArticle(id, patch, expectedVersion(ifMatch));
+        return okWithETag(article, article.getVersion());
     }
 
     /**
@@ -120,4 +268,42 @@ public class ArticleController {
         articleService.deleteArticle(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Builds a 200 response carrying the article version as its ETag.
+     * Archived articles carry the version they were archived with; only those archived
+     * before articles had versions are returned without an ETag.
+     */
+    private static <T> ResponseEntity<T> okWithETag(T body, Long version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (version != null) {
+            response.eTag("\"" + version + "\"");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Extracts the expected article version from an If-Match header.
+     * If-Match uses the strong comparison (RFC 9110, section 13.1.1), so a weak ETag never matches.
+     *
+     * @return The version, or null if the header is absent or "*"
+     * @throws PreconditionFailedException if the header names something other than a single strong version
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new PreconditionFailedException("A weak ETag never matches in If-Match: " + ifMatch);
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match does not name a version of the article: " + ifMatch);
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match does not name a version of the article: " + ifMatch);
+        }
+    }
 }
@@ -2,26 +2,31 @@ package com.nathan.blogmanagementapi.controller;
 
 import com.nathan.blogmanagementapi.dto.CommentDto;
 import com.nathan.blogmanagementapi.service.CommentService;
+import com.nathan.blogmanagementapi.service.StreamingListService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 /**
  * REST controller for comment operations.
  * Provides endpoints for creating and retrieving comments.
  */
 @RestController
 @RequestMapping("/api/articles/{articleId}/comments")
+@Validated
 @RequiredArgsConstructor
 @Tag(name = "Comment Management", description = "APIs for managing article comments")
 public class CommentController {
@@ -32,6 +37,12 @@ public class CommentController {
      */
     private final CommentService commentService;
 
+    /**
+     * Service for writing comment lists straight from the database as JSON.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final StreamingListService streamingListService;
+
     /**
      * Retrieves all comments for a specific article.
      *
@@ -39,14 +50,62 @@ public class CommentController {
      * @return ResponseEntity containing list of comments
      */
     @GetMapping
-    @Operation(summary = "Get all comments for an article", description = "Returns all comments for a specific article")
+    @Operation(summary = "Get all comments for an article", description = "Returns all comments for a specific article, ordered by ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Comments retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = CommentDto.Response.class)))),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<byte[]> getCommentsByArticleId(@PathVariable Long articleId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(streamingListService.renderComments(articleId));
+    }
+
+    /**
+     * Retrieves a page of top-level comment threads for an article.
+     *
+     * @param articleId The ID of the article
+     * @param after ID of the last top-level comment of the previous page
+     * @param size Maximum number of top-level comments
+     * @param replies Maximum number of replies per top-level comment
+     * @return ResponseEntity containing the page of threads
+     */
+    @GetMapping("/threads")
+    @Operation(summary = "Get comment threads for an article",
+            description = "Returns a page of top-level comments, oldest first, each with its first replies nested below it")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Comments retrieved successfully"),
+            @ApiResponse(responseCode = "200", description = "Threads retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid paging parameters"),
             @ApiResponse(responseCode = "404", description = "Article not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<CommentDto.Response>> getCommentsByArticleId(@PathVariable Long articleId) {
-        return ResponseEntity.ok(commentService.getCommentsByArticleId(articleId));
+    public ResponseEntity<CommentDto.ThreadPage> getThreads(
+            @PathVariable Long articleId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @RequestParam(defaultValue = "5") @Min(0) @Max(100) int replies) {
+        return ResponseEntity.ok(commentService.getThreads(articleId, after, size, replies));
+    }
+
+    /**
+     * Retrieves a comment with all of its replies.
+     *
+     * @param articleId The ID of the article
+     * @param commentId The ID of the comment
+     * @return ResponseEntity containing the comment thread
+     */
+    @GetMapping("/{commentId}/thread")
+    @Operation(summary = "Get a comment thread", description = "Returns a comment with all of its replies nested below it")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thread retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Comment not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<CommentDto.ThreadNode> getThread(@PathVariable Long articleId, @PathVariable Long commentId) {
+        return ResponseEntity.ok(commentService.getThread(articleId, commentId));
     }
 
     /**
@@ -56,11 +115,12 @@ public class CommentController {
      * @return ResponseEntity containing the created comment
      */
     @PostMapping
-    @Operation(summary = "Add a new comment", description = "Adds a new comment to an article")
+    @Operation(summary = "Add a new comment",
+            description = "Adds a new comment to an article, or a reply to another comment when parentId is given")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Comment created successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
-            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "404", description = "Article or parent comment not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<CommentDto.Response> createComment(
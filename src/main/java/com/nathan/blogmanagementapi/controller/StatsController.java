@@ -0,0 +1,45 @@
+package com.nathan.blogmanagementapi.controller;
+
+import com.nathan.blogmanagementapi.dto.StatsDto;
+import com.nathan.blogmanagementapi.service.BlogStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for blog statistics.
+ * Provides an endpoint for totals and histograms across all articles and comments.
+ */
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Tag(name = "Statistics", description = "APIs for blog statistics")
+public class StatsController {
+
+    /**
+     * Service for blog statistics.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final BlogStatsService blogStatsService;
+
+    /**
+     * Retrieves the blog statistics.
+     *
+     * @return ResponseEntity containing the statistics
+     */
+    @GetMapping
+    @Operation(summary = "Get blog statistics", description = "Returns article and comment totals, daily creation histograms and the most commented articles, served from memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StatsDto.Response> getStats() {
+        return ResponseEntity.ok(blogStatsService.getStats());
+    }
+}
@@ -0,0 +1,93 @@
+package com.nathan.blogmanagementapi.controller;
+
+import com.nathan.blogmanagementapi.dto.TenantDto;
+import com.nathan.blogmanagementapi.service.TenantService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for tenant administration.
+ * Provides endpoints for creating and listing tenants and moving them between database shards.
+ * Requests need the admin token (see AdminTokenFilter).
+ */
+@RestController
+@RequestMapping("/api/admin/tenants")
+@Validated
+@RequiredArgsConstructor
+@Tag(name = "Tenant Administration", description = "APIs for placing tenants on database shards")
+public class TenantAdminController {
+
+    /**
+     * Service for tenant administration.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final TenantService tenantService;
+
+    /**
+     * Retrieves all tenants with the shards they live on.
+     *
+     * @return ResponseEntity containing the list of tenants
+     */
+    @GetMapping
+    @Operation(summary = "Get all tenants", description = "Returns every known tenant with its shard")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tenants retrieved successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<TenantDto.Response>> getTenants() {
+        return ResponseEntity.ok(tenantService.getTenants());
+    }
+
+    /**
+     * Creates a tenant, on the given shard or on the shard picked by the hash of its ID.
+     *
+     * @param tenantRequest The tenant to create
+     * @return ResponseEntity containing the created tenant with its shard
+     */
+    @PostMapping
+    @Operation(summary = "Create a tenant",
+            description = "Registers a tenant on a shard. Requests for tenants that were not created are rejected")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Tenant created successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid tenant ID, unknown shard, or tenant already exists"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<TenantDto.Response> createTenant(@Valid @RequestBody TenantDto.Request tenantRequest) {
+        return new ResponseEntity<>(tenantService.createTenant(tenantRequest), HttpStatus.CREATED);
+    }
+
+    /**
+     * Moves a tenant to another shard while it stays online.
+     *
+     * @param tenantId The ID of the tenant
+     * @param shard The name of the target shard
+     * @return ResponseEntity containing row counts and timings of the move
+     */
+    @PostMapping("/{tenantId}/move")
+    @Operation(summary = "Move a tenant to another shard",
+            description = "Copies the tenant's articles and comments to the shard while the tenant stays online, " +
+                    "holding its requests back on every instance only for the final catch-up, then switches the tenant over")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tenant moved successfully"),
+            @ApiResponse(responseCode = "400", description = "Unknown shard, tenant already on the shard, or move in progress"),
+            @ApiResponse(responseCode = "404", description = "Tenant not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "The tenant's connections were not returned within the move write timeout")
+    })
+    public ResponseEntity<TenantDto.MoveResponse> moveTenant(
+            @PathVariable @Pattern(regexp = "[a-z0-9][a-z0-9-]{0,62}", message = "Invalid tenant ID") String tenantId,
+            @RequestParam String shard) {
+        return ResponseEntity.ok(tenantService.moveTenant(tenantId, shard));
+    }
+}
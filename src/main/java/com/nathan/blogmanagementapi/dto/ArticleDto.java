@@ -2,11 +2,13 @@ package com.nathan.blogmanagementapi.dto;
 
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Data Transfer Objects for Article operations.
@@ -33,6 +35,14 @@ public class ArticleDto {
          */
         @NotBlank(message = "Content is required")
         private String content;
+
+        /**
+         * Tags of the article, stored lowercase. At most 10 tags of up to 50 letters,
+         * digits or hyphens. Leaving them out on update keeps the current tags.
+         */
+        @Size(max = 10, message = "At most 10 tags are allowed")
+        private Set<@Pattern(regexp = "[A-Za-z0-9][A-Za-z0-9-]{0,49}",
+                message = "Tags must be 1 to 50 letters, digits or hyphens") String> tags;
     }
 
     /**
@@ -66,6 +76,16 @@ public class ArticleDto {
          */
         private LocalDateTime updatedAt;
 
+        /**
+         * Tags of the article in alphabetical order.
+         */
+        private List<String> tags;
+
+        /**
+         * Version of the article, incremented on every change. Also sent as the ETag.
+         */
+        private Long version;
+
         /**
          * Number of comments associated with this article.
          */
@@ -103,9 +123,62 @@ public class ArticleDto {
          */
         private LocalDateTime updatedAt;
 
+        /**
+         * Tags of the article in alphabetical order.
+         */
+        private List<String> tags;
+
+        /**
+         * Version of the article, incremented on every change. Also sent as the ETag.
+         */
+        private Long version;
+
         /**
          * List of comments associated with this article.
          */
         private List<CommentDto.Response> comments;
     }
+
+    /**
+     * DTO for batch article lookups.
+     * Articles are listed in request order; IDs that matched no article are reported separately.
+     */
+    @Data
+    public static class BatchResponse {
+        /**
+         * Articles that were found, in the order their IDs were requested.
+         */
+        private List<Response> articles;
+
+        /**
+         * Requested IDs that did not match any article.
+         */
+        private List<Long> missingIds;
+    }
+
+    /**
+     * DTO for one page of articles matching a filter.
+     */
+    @Data
+    public static class PageResponse {
+        /**
+         * Articles of this page, ordered by ID.
+         */
+        private List<Response> articles;
+
+        /**
+         * Zero-based number of this page.
+         */
+        private int page;
+
+        /**
+         * Maximum number of articles per page.
+         */
+        private int size;
+
+        /**
+         * Number of articles matching the filter across all pages.
+         */
+        private long totalElements;
+    }
 }
@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Data Transfer Objects for Comment operations.
@@ -23,6 +25,11 @@ public class CommentDto {
          */
         @NotBlank(message = "Comment content is required")
         private String content;
+
+        /**
+         * ID of the comment being replied to. Omitted for top-level comments.
+         */
+        private Long parentId;
     }
 
     /**
@@ -46,9 +53,89 @@ public class CommentDto {
          */
         private Long articleId;
 
+        /**
+         * ID of the comment this comment replies to, or null for a top-level comment.
+         */
+        private Long parentId;
+
+        /**
+         * Nesting level of the comment; top-level comments have depth 0.
+         */
+        private int depth;
+
+        /**
+         * Number of replies below this comment at any depth.
+         */
+        private int replyCount;
+
+        /**
+         * Timestamp when the comment was created.
+         */
+        private LocalDateTime createdAt;
+    }
+
+    /**
+     * DTO for a comment together with its nested replies.
+     * Used when returning comment threads.
+     */
+    @Data
+    public static class ThreadNode {
+        /**
+         * Unique identifier of the comment.
+         */
+        private Long id;
+
+        /**
+         * Content of the comment.
+         */
+        private String content;
+
+        /**
+         * ID of the article to which this comment belongs.
+         */
+        private Long articleId;
+
+        /**
+         * ID of the comment this comment replies to, or null for a top-level comment.
+         */
+        private Long parentId;
+
+        /**
+         * Nesting level of the comment; top-level comments have depth 0.
+         */
+        private int depth;
+
+        /**
+         * Number of replies below this comment at any depth.
+         * May be larger than the number of replies included below.
+         */
+        private int replyCount;
+
         /**
          * Timestamp when the comment was created.
          */
         private LocalDateTime createdAt;
+
+        /**
+         * Direct replies to this comment, oldest first.
+         */
+        private List<ThreadNode> replies = new ArrayList<>();
+    }
+
+    /**
+     * DTO for one page of top-level comment threads.
+     */
+    @Data
+    public static class ThreadPage {
+        /**
+         * Top-level comments of this page, oldest first, each with its first replies.
+         */
+        private List<ThreadNode> threads;
+
+        /**
+         * ID of the last top-level comment of this page, to be passed as 'after' to fetch
+         * the next page; null when there are no further threads.
+         */
+        private Long nextAfter;
     }
 }
@@ -0,0 +1,99 @@
+package com.nathan.blogmanagementapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Objects for blog statistics.
+ * Contains nested classes for the statistics response and its entries.
+ */
+public class StatsDto {
+
+    /**
+     * DTO for the blog statistics response.
+     * Counts cover the articles and comments in the database; archived articles are counted separately.
+     */
+    @Data
+    public static class Response {
+        /**
+         * Number of articles in the database.
+         */
+        private long articleCount;
+
+        /**
+         * Number of comments in the database.
+         */
+        private long commentCount;
+
+        /**
+         * Number of articles moved to the archive.
+         */
+        private long archivedArticleCount;
+
+        /**
+         * Average number of comments per article in the database.
+         */
+        private double averageCommentsPerArticle;
+
+        /**
+         * Articles created per day over the most recent days, oldest first. Days without articles are included.
+         */
+        private List<DayCount> articlesPerDay;
+
+        /**
+         * Comments created per day over the most recent days, oldest first. Days without comments are included.
+         */
+        private List<DayCount> commentsPerDay;
+
+        /**
+         * Articles with the most comments, most commented first.
+         */
+        private List<ArticleCommentCount> mostCommentedArticles;
+
+        /**
+         * Timestamp of the last reconciliation against the database.
+         */
+        private LocalDateTime reconciledAt;
+    }
+
+    /**
+     * DTO for the number of items created on one day.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DayCount {
+        /**
+         * The day.
+         */
+        private LocalDate date;
+
+        /**
+         * Number of items created on that day that still exist.
+         */
+        private long count;
+    }
+
+    /**
+     * DTO for the comment count of one article.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArticleCommentCount {
+        /**
+         * ID of the article.
+         */
+        private Long articleId;
+
+        /**
+         * Number of comments on the article.
+         */
+        private int commentCount;
+    }
+}
@@ -0,0 +1,96 @@
+package com.nathan.blogmanagementapi.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Objects for tenant administration.
+ * Contains nested classes for tenant creation, tenant listings and tenant moves.
+ */
+public class TenantDto {
+
+    /**
+     * DTO for incoming tenant creation requests.
+     */
+    @Data
+    public static class Request {
+        /**
+         * ID of the new tenant: 1 to 63 lowercase letters, digits or dashes.
+         */
+        @NotBlank(message = "Tenant ID is required")
+        @Pattern(regexp = "[a-z0-9][a-z0-9-]{0,62}", message = "Invalid tenant ID")
+        private String tenantId;
+
+        /**
+         * Shard to create the tenant on. Leaving it out places the tenant by the hash of its ID.
+         */
+        private String shard;
+    }
+
+    /**
+     * DTO for a tenant and the shard it lives on.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Response {
+        /**
+         * ID of the tenant.
+         */
+        private String tenantId;
+
+        /**
+         * Name of the tenant's shard.
+         */
+        private String shard;
+    }
+
+    /**
+     * DTO for the outcome of a tenant move.
+     */
+    @Data
+    public static class MoveResponse {
+        /**
+         * ID of the moved tenant.
+         */
+        private String tenantId;
+
+        /**
+         * Shard the tenant was moved from.
+         */
+        private String fromShard;
+
+        /**
+         * Shard the tenant was moved to.
+         */
+        private String toShard;
+
+        /**
+         * Number of articles copied in the initial bulk copy.
+         */
+        private long articlesCopied;
+
+        /**
+         * Number of comments copied in the initial bulk copy.
+         */
+        private long commentsCopied;
+
+        /**
+         * Number of articles and comments written, changed or deleted during the copy and synchronized afterwards.
+         */
+        private long rowsSynchronized;
+
+        /**
+         * Time the tenant's requests were held back, in milliseconds, including the wait for its open connections.
+         */
+        private long writePauseMillis;
+
+        /**
+         * Total duration of the move, in milliseconds.
+         */
+        private long durationMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package com.nathan.blogmanagementapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request is syntactically valid but its data cannot be accepted.
+ * Results in a 400 BAD REQUEST HTTP response when thrown.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends RuntimeException {
+
+    /**
+     * Constructor with error message.
+     *
+     * @param message The error message
+     */
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.nathan.blogmanagementapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request is not allowed, whatever its credentials.
+ * Results in a 403 FORBIDDEN HTTP response when thrown.
+ */
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class ForbiddenException extends RuntimeException {
+
+    /**
+     * Constructor with error message.
+     *
+     * @param message The error message
+     */
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
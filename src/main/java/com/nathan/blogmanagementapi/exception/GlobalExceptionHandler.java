@@ -3,6 +3,7 @@ package com.nathan.blogmanagementapi.exception;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -36,6 +37,126 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    /**
+     * Handles BadRequestException.
+     * Returns a 400 BAD REQUEST response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequestException(BadRequestException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    /**
+     * Handles UnauthorizedException.
+     * Returns a 401 UNAUTHORIZED response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<ErrorResponse> handleUnauthorizedException(UnauthorizedException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.UNAUTHORIZED.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
+    }
+
+    /**
+     * Handles ForbiddenException.
+     * Returns a 403 FORBIDDEN response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(ForbiddenException.class)
+    public ResponseEntity<ErrorResponse> handleForbiddenException(ForbiddenException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.FORBIDDEN.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+    }
+
+    /**
+     * Handles LoadTimeoutException.
+     * Returns a 503 SERVICE UNAVAILABLE response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(LoadTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleLoadTimeoutException(LoadTimeoutException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    /**
+     * Handles TenantUnavailableException.
+     * Returns a 503 SERVICE UNAVAILABLE response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(TenantUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleTenantUnavailableException(TenantUnavailableException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    /**
+     * Handles PreconditionFailedException.
+     * Returns a 412 PRECONDITION FAILED response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+
+    /**
+     * Handles optimistic locking failures, raised when a versioned update finds that
+     * another request changed the row first.
+     * Returns a 412 PRECONDITION FAILED response with error details.
+     *
+     * @param ex The caught exception
+     * @return Response entity with error details
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                "The resource was modified concurrently; fetch it again and retry",
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+
     /**
      * Handles validation exceptions from @Valid annotations.
      * Returns a 400 BAD REQUEST response with field-specific error messages.
@@ -0,0 +1,21 @@
+package com.nathan.blogmanagementapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request gives up waiting for a shared in-flight load.
+ * Results in a 503 SERVICE UNAVAILABLE HTTP response when thrown.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class LoadTimeoutException extends RuntimeException {
+
+    /**
+     * Constructor with error message.
+     *
+     * @param message The error message
+     */
+    public LoadTimeoutException(String message) {
+        super(message);
+    }
+}
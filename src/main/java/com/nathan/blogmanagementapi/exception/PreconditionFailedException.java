@@ -0,0 +1,21 @@
+package com.nathan.blogmanagementapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a conditional request does not match the current version of a resource.
+ * Results in a 412 PRECONDITION FAILED HTTP response when thrown.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    /**
+     * Constructor with error message.
+     *
+     * @param message The error message
+     */
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -18,4 +18,15 @@ public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException(String message) {
         super(message);
     }
+
+    /**
+     * Constructor with error message, optionally skipping the stack trace.
+     * Used for high-volume lookups that are known to miss, where the trace is never looked at.
+     *
+     * @param message The error message
+     * @param writableStackTrace Whether the stack trace is filled in
+     */
+    public ResourceNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,22 @@
+package com.nathan.blogmanagementapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request gives up waiting for its tenant to finish moving between shards,
+ * or a move gives up waiting for the tenant's connections to be returned.
+ * Results in a 503 SERVICE UNAVAILABLE HTTP response when thrown.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TenantUnavailableException extends RuntimeException {
+
+    /**
+     * Constructor with error message.
+     *
+     * @param message The error message
+     */
+    public TenantUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -8,18 +8,24 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.TenantId;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Entity class representing a blog article.
  * This class maps to the 'articles' table in the database.
+ * Updates only write the columns that changed, so changing the title does not rewrite the content.
  */
 @Entity
 @Table(name = "articles")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,6 +38,14 @@ public class Article {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Tenant (blog) the article belongs to.
+     * Set by Hibernate from the current tenant on insert, and matched by every query.
+     */
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 63)
+    private String tenantId;
+
     /**
      * Title of the article.
      * Must be between 3 and 100 characters.
@@ -43,10 +57,13 @@ public class Article {
 
     /**
      * Main content of the article.
-     * Stored as TEXT in the database to accommodate longer content.
+     * Stored as binary, optionally compressed, by ArticleContentConverter.
+     * LAZY fetching (through bytecode enhancement) keeps metadata-only loads from reading it.
      */
     @NotBlank(message = "Content is required")
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = ArticleContentConverter.class)
+    @Column(nullable = false, columnDefinition = "bytea")
     private String content;
 
     /**
@@ -65,6 +82,14 @@ public class Article {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Version of the article for optimistic locking.
+     * Incremented on every update; exposed to clients as the ETag.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * List of comments associated with this article.
      * Mapped by the article field in the Comment entity.
@@ -72,4 +97,12 @@ public class Article {
      */
     @OneToMany(mappedBy = "article", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Comment> comments = new ArrayList<>();
+
+    /**
+     * Tags of the article, stored lowercase in the article_tags table.
+     */
+    @ElementCollection
+    @CollectionTable(name = "article_tags", joinColumns = @JoinColumn(name = "article_id"))
+    @Column(name = "tag", nullable = false, length = 50)
+    private Set<String> tags = new HashSet<>();
 }
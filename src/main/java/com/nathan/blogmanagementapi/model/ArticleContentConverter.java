@@ -0,0 +1,125 @@
+package com.nathan.blogmanagementapi.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts article content to its stored binary form.
+ * The first stored byte identifies the format of the remaining bytes: plain UTF-8 text,
+ * or UTF-8 text compressed with deflate. Reads accept both formats, so compression can be
+ * switched on or off without rewriting existing rows.
+ * Instantiated by Hibernate through the Spring bean container.
+ */
+@Converter
+public class ArticleContentConverter implements AttributeConverter<String, byte[]> {
+
+    /**
+     * Format marker for content stored as plain UTF-8.
+     */
+    public static final byte FORMAT_PLAIN = 0;
+
+    /**
+     * Format marker for content stored as deflate-compressed UTF-8.
+     */
+    public static final byte FORMAT_DEFLATE = 1;
+
+    /**
+     * Whether new content is compressed before it is stored.
+     */
+    private final boolean compress;
+
+    /**
+     * Content shorter than this is always stored plain.
+     */
+    private final long threshold;
+
+    public ArticleContentConverter(@Value("${blog.content.compression:none}") String compression,
+                                   @Value("${blog.content.compression-threshold:1KB}") DataSize threshold) {
+        this.compress = "deflate".equalsIgnoreCase(compression);
+        this.threshold = threshold.toBytes();
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String content) {
+        if (content == null) {
+            return null;
+        }
+
+        byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+        if (compress && utf8.length >= threshold) {
+            byte[] compressed = deflate(utf8);
+            // Keep the plain form when compression does not pay off
+            if (compressed.length < utf8.length) {
+                return withFormat(FORMAT_DEFLATE, compressed, compressed.length);
+            }
+        }
+        return withFormat(FORMAT_PLAIN, utf8, utf8.length);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+
+        return switch (stored[0]) {
+            case FORMAT_PLAIN -> new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE -> new String(inflate(stored), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown article content format: " + stored[0]);
+        };
+    }
+
+    private static byte[] withFormat(byte format, byte[] data, int length) {
+        byte[] stored = new byte[length + 1];
+        stored[0] = format;
+        System.arraycopy(data, 0, stored, 1, length);
+        return stored;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[input.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            // Output that does not fit into the input size is not worth keeping
+            return deflater.finished() ? Arrays.copyOf(buffer, length) : input;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed article content");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt compressed article content", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
 
 import java.time.LocalDateTime;
 
@@ -27,6 +28,14 @@ public class Comment {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Tenant (blog) the comment belongs to.
+     * Set by Hibernate from the current tenant on insert, and matched by every query.
+     */
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 63)
+    private String tenantId;
+
     /**
      * Content of the comment.
      * Stored as TEXT in the database to accommodate longer content.
@@ -44,6 +53,34 @@ public class Comment {
     @JoinColumn(name = "article_id", nullable = false)
     private Article article;
 
+    /**
+     * ID of the comment this comment replies to, or null for a top-level comment.
+     */
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    /**
+     * Materialized path of the comment: the IDs of its ancestors followed by its own ID,
+     * each written as 16 hex digits and terminated by '.'.
+     * Ordering by path lists a thread depth-first, and the subtree of a comment is the
+     * range of paths starting with its own path. Assigned once the ID is known.
+     */
+    @Column(columnDefinition = "varchar(255) collate \"C\"")
+    private String path;
+
+    /**
+     * Nesting level of the comment; top-level comments have depth 0.
+     */
+    @Column(nullable = false)
+    private int depth;
+
+    /**
+     * Number of replies below this comment at any depth.
+     * Incremented on every ancestor when a reply is added.
+     */
+    @Column(name = "reply_count", nullable = false)
+    private int replyCount;
+
     /**
      * Timestamp when the comment was created.
      * Automatically generated and cannot be updated.
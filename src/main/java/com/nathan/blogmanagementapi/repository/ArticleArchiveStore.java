@@ -0,0 +1,505 @@
+package com.nathan.blogmanagementapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * File-backed store for archived articles.
+ * Articles are written, together with their comments, as compressed JSON records into
+ * append-only segment files. An append-only index file maps each article ID to the
+ * location of its record. Sealed segments are read through memory mappings, the active one,
+ * which still grows, through plain reads. Records appended within
+ * a transaction become readable when it commits; records of rolled back transactions and of
+ * deleted articles are removed again by tombstone entries in the index.
+ * Every tenant has its own segments and index: the default tenant's archive is the archive
+ * directory itself, other tenants' archives are subdirectories of its "tenants" directory.
+ * All operations work on the archive of the current tenant.
+ * The archive lives on the local disk of one instance and only that instance reads it;
+ * several instances do not share or replicate their archives.
+ */
+@Slf4j
+@Repository
+public class ArticleArchiveStore {
+
+    /**
+     * Size of one index entry: id, segment, offset, stored length, raw length and CRC32.
+     * An entry with segment 0 is a tombstone, which removes the article from the archive.
+     */
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+
+    private static final String INDEX_FILE = "archive.idx";
+
+    private static final String TENANTS_DIRECTORY = "tenants";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Directory holding the default tenant's segment files and index, and the other tenants' archives.
+     */
+    private final Path directory;
+
+    /**
+     * Size after which the active segment is sealed and a new one is started.
+     */
+    private final long segmentSize;
+
+    /**
+     * Archive of every tenant that has one, keyed by tenant.
+     */
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    public ArticleArchiveStore(ObjectMapper objectMapper,
+                               @Value("${blog.archive.directory:archive}") Path directory,
+                               @Value("${blog.archive.segment-size:64MB}") DataSize segmentSize) {
+        if (segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("blog.archive.segment-size must be below 2GB");
+        }
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.segmentSize = segmentSize.toBytes();
+    }
+
+    /**
+     * Loads the indexes of all tenants' archives from disk.
+     */
+    @PostConstruct
+    void loadIndexes() throws IOException {
+        List<String> tenants = new ArrayList<>(List.of(TenantContext.DEFAULT_TENANT));
+        Path tenantsDirectory = directory.resolve(TENANTS_DIRECTORY);
+        if (Files.isDirectory(tenantsDirectory)) {
+            try (Stream<Path> tenantDirectories = Files.list(tenantsDirectory)) {
+                tenantDirectories.filter(Files::isDirectory)
+                        .forEach(tenantDirectory -> tenants.add(tenantDirectory.getFileName().toString()));
+            }
+        }
+        tenants.forEach(this::partition);
+    }
+
+    /**
+     * Closes the files held open for appending.
+     */
+    @PreDestroy
+    void close() throws IOException {
+        for (Partition partition : partitions.values()) {
+            partition.close();
+        }
+    }
+
+    /**
+     * Checks whether an article has been archived.
+     *
+     * @param id The ID of the article
+     * @return true if the archive holds a record for the article
+     */
+    public boolean contains(Long id) {
+        Partition partition = partitions.get(TenantContext.getTenant());
+        return partition != null && partition.index.containsKey(id);
+    }
+
+    /**
+     * Returns the number of archived articles.
+     *
+     * @return Number of articles in the archive
+     */
+    public int size() {
+        Partition partition = partitions.get(TenantContext.getTenant());
+        return partition != null ? partition.index.size() : 0;
+    }
+
+    /**
+     * Reads an archived article.
+     *
+     * @param id The ID of the article to read
+     * @return The archived article with its comments, or empty if it is not archived
+     */
+    public Optional<ArticleDto.DetailedResponse> find(Long id) {
+        Partition partition = partitions.get(TenantContext.getTenant());
+        return partition != null ? partition.find(id) : Optional.empty();
+    }
+
+    /**
+     * Appends an article to the active segment and records it in the index.
+     * Both files are forced to disk before returning, so the caller can safely
+     * delete the article from the database afterwards. The article becomes readable
+     * when the current transaction commits; if it rolls back, the record is removed again.
+     *
+     * @param article The article, including its comments, to archive
+     */
+    public void append(ArticleDto.DetailedResponse article) throws IOException {
+        Partition partition = partition(TenantContext.getTenant());
+        Long id = article.getId();
+        Entry entry = partition.append(article);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            partition.index.put(id, entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                partition.index.put(id, entry);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    // Otherwise the record would be loaded again on the next start
+                    partition.remove(id);
+                } catch (IOException ex) {
+                    log.error("Failed to remove the archive record of article {} after a rollback", id, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes an article from the archive by appending a tombstone to the index,
+     * which is forced to disk before returning.
+     *
+     * @param id The ID of the article to remove
+     * @return true if the archive held the article
+     */
+    public boolean remove(Long id) throws IOException {
+        Partition partition = partitions.get(TenantContext.getTenant());
+        if (partition == null || !partition.index.containsKey(id)) {
+            return false;
+        }
+        partition.remove(id);
+        return true;
+    }
+
+    /**
+     * Returns the archive of a tenant, opening it on the first append. Reads never open
+     * an archive, so only tenants that archived something, or have an archive on disk, get one.
+     */
+    private Partition partition(String tenant) {
+        return partitions.computeIfAbsent(tenant, key -> {
+            Path partitionDirectory = TenantContext.DEFAULT_TENANT.equals(key)
+                    ? directory
+                    : directory.resolve(TENANTS_DIRECTORY).resolve(key);
+            Partition partition = new Partition(partitionDirectory);
+            try {
+                partition.loadIndex();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return partition;
+        });
+    }
+
+    /**
+     * The archive of one tenant: its segment files and index in one directory.
+     */
+    private class Partition {
+
+        /**
+         * Directory holding the segment files and the index.
+         */
+        private final Path directory;
+
+        /**
+         * Location of every archived article, keyed by article ID.
+         */
+        private final Map<Long, Entry> index = new ConcurrentHashMap<>();
+
+        /**
+         * Read-only mappings of the sealed segment files, keyed by segment number.
+         * Sealed segments no longer change, so each is mapped once and its mapping is never replaced.
+         */
+        private final Map<Integer, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+
+        private FileChannel indexChannel;
+        private FileChannel segmentChannel;
+
+        /**
+         * Number of the segment appended to; lower numbered segments are sealed.
+         */
+        private volatile int activeSegment;
+
+        /**
+         * Length of the complete entries in the index file, where the next entry is written.
+         */
+        private long indexLength;
+
+        Partition(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Loads the index from disk, dropping entries whose record never made it into its segment
+         * and truncating a partial entry left at the end of the file by an interrupted write.
+         */
+        void loadIndex() throws IOException {
+            Path indexFile = directory.resolve(INDEX_FILE);
+            if (!Files.exists(indexFile)) {
+                return;
+            }
+
+            byte[] bytes = Files.readAllBytes(indexFile);
+            int torn = bytes.length % INDEX_ENTRY_SIZE;
+            indexLength = bytes.length - torn;
+            if (torn > 0) {
+                // Entries written after it would be misaligned and read as garbage on the next start
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(indexLength);
+                    channel.force(false);
+                }
+                log.warn("Truncated a partial entry of {} bytes from the archive index in {}", torn, directory.toAbsolutePath());
+            }
+
+            ByteBuffer entries = ByteBuffer.wrap(bytes, 0, (int) indexLength);
+            while (entries.remaining() >= INDEX_ENTRY_SIZE) {
+                long id = entries.getLong();
+                Entry entry = new Entry(entries.getInt(), entries.getLong(), entries.getInt(), entries.getInt(), entries.getInt());
+                if (entry.segment() == 0) {
+                    index.remove(id);
+                    continue;
+                }
+                Path segment = segmentPath(entry.segment());
+                if (Files.exists(segment) && entry.offset() + entry.length() <= Files.size(segment)) {
+                    // Later entries win, so re-archiving an article supersedes its older record
+                    index.put(id, entry);
+                    activeSegment = Math.max(activeSegment, entry.segment());
+                }
+            }
+            log.info("Loaded archive index with {} articles from {}", index.size(), directory.toAbsolutePath());
+        }
+
+        /**
+         * Closes the files held open for appending and drops the segment mappings.
+         */
+        synchronized void close() throws IOException {
+            mappedSegments.clear();
+            if (segmentChannel != null) {
+                segmentChannel.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+
+        /**
+         * Reads an archived article.
+         *
+         * @param id The ID of the article to read
+         * @return The archived article with its comments, or empty if it is not archived
+         */
+        Optional<ArticleDto.DetailedResponse> find(Long id) {
+            Entry entry = index.get(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+
+            ByteBuffer record = readRecord(id, entry);
+            byte[] json = new byte[entry.rawLength()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(record);
+                int read = 0;
+                while (read < json.length && !inflater.finished()) {
+                    read += inflater.inflate(json, read, json.length - read);
+                }
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("Corrupt archive record for article " + id, ex);
+            } finally {
+                inflater.end();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            if ((int) crc.getValue() != entry.crc()) {
+                throw new IllegalStateException("Checksum mismatch in archive record for article " + id);
+            }
+
+            try {
+                return Optional.of(objectMapper.readValue(json, ArticleDto.DetailedResponse.class));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Appends an article to the active segment and records it in the index file.
+         * Both files are forced to disk before returning. The in-memory index is left
+         * to the caller, which publishes the entry once the article has left the database.
+         *
+         * @param article The article, including its comments, to archive
+         * @return The location of the record
+         */
+        synchronized Entry append(ArticleDto.DetailedResponse article) throws IOException {
+            byte[] json = objectMapper.writeValueAsBytes(article);
+            byte[] compressed = deflate(json);
+            CRC32 crc = new CRC32();
+            crc.update(json);
+
+            FileChannel segment = activeSegmentChannel(compressed.length);
+            long offset = segment.size();
+            ByteBuffer data = ByteBuffer.wrap(compressed);
+            while (data.hasRemaining()) {
+                segment.write(data, offset + data.position());
+            }
+            segment.force(false);
+
+            Entry entry = new Entry(activeSegment, offset, compressed.length, json.length, (int) crc.getValue());
+            writeIndexEntry(article.getId(), entry);
+            return entry;
+        }
+
+        /**
+         * Removes an article by appending a tombstone to the index file, forced to disk.
+         *
+         * @param id The ID of the article to remove
+         */
+        synchronized void remove(Long id) throws IOException {
+            writeIndexEntry(id, new Entry(0, 0, 0, 0, 0));
+            index.remove(id);
+        }
+
+        private void writeIndexEntry(long id, Entry entry) throws IOException {
+            ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+                    .putLong(id)
+                    .putInt(entry.segment())
+                    .putLong(entry.offset())
+                    .putInt(entry.length())
+                    .putInt(entry.rawLength())
+                    .putInt(entry.crc())
+                    .flip();
+            // Written at the end of the last complete entry, so a failed write is overwritten by the next one
+            FileChannel indexFile = indexChannel();
+            while (indexEntry.hasRemaining()) {
+                indexFile.write(indexEntry, indexLength + indexEntry.position());
+            }
+            indexFile.force(false);
+            indexLength += INDEX_ENTRY_SIZE;
+        }
+
+        /**
+         * Reads the stored bytes of a record, from the mapping of a sealed segment
+         * or, for the active segment, straight from the file.
+         */
+        private ByteBuffer readRecord(Long id, Entry entry) {
+            if (entry.segment() < activeSegment) {
+                return mappedSegment(entry.segment()).slice((int) entry.offset(), entry.length());
+            }
+
+            // Mapping the active segment would need a new mapping whenever it has grown
+            try (FileChannel channel = FileChannel.open(segmentPath(entry.segment()), StandardOpenOption.READ)) {
+                ByteBuffer record = ByteBuffer.allocate(entry.length());
+                while (record.hasRemaining()) {
+                    if (channel.read(record, entry.offset() + record.position()) < 0) {
+                        throw new EOFException("Archive record for article " + id + " is truncated");
+                    }
+                }
+                return record.flip();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Returns the mapping of a sealed segment, mapping it on first use.
+         */
+        private MappedByteBuffer mappedSegment(int segment) {
+            return mappedSegments.computeIfAbsent(segment, key -> {
+                try (FileChannel channel = FileChannel.open(segmentPath(key), StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+
+        /**
+         * Returns the channel of the segment to append to, rolling over to a new
+         * segment when the record would not fit into the current one.
+         */
+        private FileChannel activeSegmentChannel(int recordLength) throws IOException {
+            if (segmentChannel == null) {
+                Files.createDirectories(directory);
+                activeSegment = Math.max(activeSegment, 1);
+                segmentChannel = openForAppend(segmentPath(activeSegment));
+            }
+            if (segmentChannel.size() > 0 && segmentChannel.size() + recordLength > segmentSize) {
+                segmentChannel.close();
+                activeSegment++;
+                segmentChannel = openForAppend(segmentPath(activeSegment));
+            }
+            return segmentChannel;
+        }
+
+        private FileChannel indexChannel() throws IOException {
+            if (indexChannel == null) {
+                Files.createDirectories(directory);
+                indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            return indexChannel;
+        }
+
+        private static FileChannel openForAppend(Path path) throws IOException {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private Path segmentPath(int segment) {
+            return directory.resolve(String.format("segment-%08d.dat", segment));
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, input.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Location and checksum of one archived record.
+     */
+    private record Entry(int segment, long offset, int length, int rawLength, int crc) {
+    }
+}
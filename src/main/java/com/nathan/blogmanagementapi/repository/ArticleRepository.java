@@ -1,9 +1,16 @@
 package com.nathan.blogmanagementapi.repository;
 
 import com.nathan.blogmanagementapi.model.Article;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for Article entity.
  * Provides database operations for Article objects.
@@ -11,5 +18,73 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface ArticleRepository extends JpaRepository<Article, Long> {
-    // We can add custom query methods here if needed
+
+    /**
+     * Loads the summaries of several articles with one IN query.
+     *
+     * @param ids The IDs of the articles to load
+     * @return Summaries of the articles that exist, in no particular order
+     */
+    @Query("select a.id as id, a.title as title, a.content as content, a.createdAt as createdAt, " +
+            "a.updatedAt as updatedAt, a.version as version, size(a.comments) as commentCount from Article a where a.id in :ids")
+    List<ArticleSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the IDs of articles created before a given time, oldest first.
+     *
+     * @param cutoff Only articles created before this time are returned
+     * @param pageable The page of IDs to return
+     * @return IDs of the matching articles
+     */
+    @Query("select a.id from Article a where a.createdAt < :cutoff order by a.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Checks whether an article's stored content equals the given content, comparing in the database.
+     * The content is converted to its stored form first, so equal content in the current storage
+     * format matches without the stored value being sent back.
+     *
+     * @param id The ID of the article
+     * @param content The content to compare with
+     * @return true if the article exists and its content is unchanged
+     */
+    @Query("select count(a) > 0 from Article a where a.id = :id and a.content = :content")
+    boolean hasContent(@Param("id") Long id, @Param("content") String content);
+
+    /**
+     * Finds the tags of the given articles.
+     *
+     * @param ids The IDs of the articles
+     * @return One entry per article and tag, in alphabetical order of tags
+     */
+    @Query("select a.id as articleId, t as tag from Article a join a.tags t where a.id in :ids order by t")
+    List<ArticleTag> findTagsByArticleIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Projection of the fields shown in article listings.
+     */
+    interface ArticleSummary {
+        Long getId();
+
+        String getTitle();
+
+        String getContent();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getUpdatedAt();
+
+        Long getVersion();
+
+        int getCommentCount();
+    }
+
+    /**
+     * Projection of one tag of an article.
+     */
+    interface ArticleTag {
+        Long getArticleId();
+
+        String getTag();
+    }
 }
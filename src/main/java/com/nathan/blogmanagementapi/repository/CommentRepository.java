@@ -2,8 +2,12 @@ package com.nathan.blogmanagementapi.repository;
 
 import com.nathan.blogmanagementapi.model.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,4 +25,62 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      * @return List of comments belonging to the specified article
      */
     List<Comment> findByArticleId(Long articleId);
+
+    /**
+     * Finds the comments of an article whose paths fall into the given range, in path order.
+     * With the range [path, end of path) this returns a comment and all of its replies.
+     *
+     * @param articleId The ID of the article
+     * @param from Lowest path to include
+     * @param to Path bound to stop before
+     * @return Comments in depth-first order
+     */
+    @Query("select c from Comment c where c.article.id = :articleId and c.path >= :from and c.path < :to order by c.path")
+    List<Comment> findByPathRange(@Param("articleId") Long articleId, @Param("from") String from, @Param("to") String to);
+
+    /**
+     * Finds a page of top-level comment threads of an article.
+     * The top-level comments after the given path are picked first from the partial index
+     * on top-level comments; the comments from the first to the end of the last of these
+     * threads are then read in one range scan of (article_id, path), keeping each top-level
+     * comment and its first replies in depth-first order.
+     * Native queries are not restricted to the current tenant by Hibernate, so the tenant is passed explicitly.
+     *
+     * @param tenantId The tenant of the article
+     * @param articleId The ID of the article
+     * @param afterPath Path of the last top-level comment of the previous page, or "" for the first page
+     * @param threads Maximum number of top-level comments
+     * @param replies Maximum number of replies per top-level comment
+     * @return Comments of the page in depth-first order
+     */
+    @Query(value = """
+            with roots as (
+                select path from comments
+                where article_id = :articleId and tenant_id = :tenantId and depth = 0 and path > :afterPath
+                order by path limit :threads
+            )
+            select ranked.* from (
+                select c.*, row_number() over (partition by left(c.path, 17) order by c.path) as position
+                from comments c
+                where c.article_id = :articleId
+                  and c.tenant_id = :tenantId
+                  and c.path >= (select min(path) from roots)
+                  and c.path < (select left(max(path), 16) || '/' from roots)
+            ) ranked
+            where ranked.position <= :replies + 1
+            order by ranked.path
+            """, nativeQuery = true)
+    List<Comment> findThreadPage(@Param("tenantId") String tenantId, @Param("articleId") Long articleId,
+                                 @Param("afterPath") String afterPath,
+                                 @Param("threads") int threads, @Param("replies") int replies);
+
+    /**
+     * Increments the reply count of the given comments.
+     *
+     * @param ids The IDs of the comments, typically all ancestors of a new reply
+     * @return Number of comments updated
+     */
+    @Modifying
+    @Query("update Comment c set c.replyCount = c.replyCount + 1 where c.id in :ids")
+    int incrementReplyCounts(@Param("ids") Collection<Long> ids);
 }
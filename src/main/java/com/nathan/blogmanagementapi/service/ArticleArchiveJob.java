@@ -0,0 +1,145 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.repository.ArticleRepository;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scheduled job that moves cold articles out of the database into the archive.
+ * Articles older than the configured age are archived in batches, oldest first,
+ * one tenant after another. Like any other write, archiving waits while its tenant is moved.
+ * Failures are logged and skipped, so they do not hold back the other articles and tenants.
+ * A run holds an advisory lock on the primary shard, so when several instances have the job
+ * enabled only one of them archives at a time and no article is archived twice.
+ * Each instance keeps its archive on its own disk, though, so in such deployments
+ * archived articles are only readable through the instance that archived them.
+ */
+@Slf4j
+@Component
+public class ArticleArchiveJob {
+
+    /**
+     * First key of the archive job's advisory lock, separating it from other advisory locks.
+     */
+    private static final int ARCHIVE_LOCK_NAMESPACE = 0x61726368;
+
+    private static final String TRY_LOCK_ARCHIVE = "select pg_try_advisory_xact_lock(" + ARCHIVE_LOCK_NAMESPACE + ", 0)";
+
+    private final ArticleRepository articleRepository;
+    private final ArticleService articleService;
+    private final ShardDirectory shardDirectory;
+    private final Shards shards;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+
+    public ArticleArchiveJob(ArticleRepository articleRepository,
+                             ArticleService articleService,
+                             ShardDirectory shardDirectory,
+                             Shards shards,
+                             @Value("${blog.archive.enabled:false}") boolean enabled,
+                             @Value("${blog.archive.min-age:365d}") Duration minAge,
+                             @Value("${blog.archive.batch-size:100}") int batchSize) {
+        this.articleRepository = articleRepository;
+        this.articleService = articleService;
+        this.shardDirectory = shardDirectory;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives every article older than the configured minimum age, for every tenant.
+     * Skips the run if another instance is already archiving.
+     */
+    @Scheduled(cron = "${blog.archive.cron:0 30 3 * * *}")
+    public void archiveColdArticles() {
+        if (!enabled) {
+            return;
+        }
+
+        // The lock is held by a transaction of its own, which the archiving never joins
+        try (Connection lock = shards.getDataSource(shards.getPrimary()).getConnection()) {
+            lock.setAutoCommit(false);
+            try {
+                if (!tryLockArchive(lock)) {
+                    log.info("Skipping the archive run, another instance is archiving");
+                    return;
+                }
+                archiveColdArticlesOfAllTenants();
+            } finally {
+                lock.rollback(); // Releases the lock
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to lock the archive job", ex);
+        }
+    }
+
+    private void archiveColdArticlesOfAllTenants() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        for (String tenant : shardDirectory.getTenants().keySet()) {
+            try {
+                TenantContext.runAs(tenant, () -> archiveColdArticles(tenant, cutoff));
+            } catch (RuntimeException ex) {
+                log.error("Failed to archive the articles of tenant {}", tenant, ex);
+            }
+        }
+    }
+
+    /**
+     * Archives the current tenant's articles created before the cutoff.
+     * An article that fails to archive is logged and skipped, and stays in the database.
+     */
+    private void archiveColdArticles(String tenant, LocalDateTime cutoff) {
+        int archived = 0;
+        Set<Long> failed = new HashSet<>();
+        List<Long> ids;
+        int limit;
+        do {
+            // Archived articles leave the table, so the first page always holds the next batch,
+            // after the articles that failed
+            limit = batchSize + failed.size();
+            ids = articleRepository.findIdsCreatedBefore(cutoff, PageRequest.of(0, limit));
+            for (Long id : ids) {
+                if (failed.contains(id)) {
+                    continue;
+                }
+                try {
+                    articleService.archiveArticle(id);
+                    archived++;
+                } catch (RuntimeException ex) {
+                    failed.add(id);
+                    log.warn("Failed to archive article {} of tenant {}", id, tenant, ex);
+                }
+            }
+        } while (ids.size() == limit);
+
+        if (archived > 0 || !failed.isEmpty()) {
+            log.info("Archived {} articles of tenant {} created before {}, {} failed", archived, tenant, cutoff, failed.size());
+        }
+    }
+
+    private static boolean tryLockArchive(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_ARCHIVE);
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.model.ArticleContentConverter;
+import com.nathan.blogmanagementapi.repository.ArticleArchiveStore;
+import com.nathan.blogmanagementapi.repository.ArticleRepository;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Service class for streaming article content.
+ * Moves article bodies between the HTTP connection and the database in fixed-size chunks,
+ * so memory use per request does not depend on the size of the article. Downloads read
+ * every chunk in its own statement, so a slow client never holds a database connection.
+ */
+@Service
+public class ArticleContentService {
+
+    private static final String SELECT_FORMAT_AND_VERSION =
+            "select get_byte(content, 0), version from articles where id = ? and tenant_id = ?";
+
+    private static final String SELECT_CHUNK =
+            "select substring(content from ? for ?) from articles where id = ? and tenant_id = ? and version = ?";
+
+    private static final String UPDATE_CONTENT =
+            "update articles set content = ?, updated_at = ?, version = version + 1 where id = ? and tenant_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArticleRepository articleRepository;
+    private final ArticleArchiveStore articleArchiveStore;
+    private final ArticleIdFilter articleIdFilter;
+    private final boolean compress;
+    private final long compressionThreshold;
+    private final int chunkSize;
+    private final long maxSize;
+
+    public ArticleContentService(JdbcTemplate jdbcTemplate,
+                                 ArticleRepository articleRepository,
+                                 ArticleArchiveStore articleArchiveStore,
+                                 ArticleIdFilter articleIdFilter,
+                                 @Value("${blog.content.compression:none}") String compression,
+                                 @Value("${blog.content.compression-threshold:1KB}") DataSize compressionThreshold,
+                                 @Value("${blog.content.stream-chunk-size:256KB}") DataSize chunkSize,
+                                 @Value("${blog.content.max-size:64MB}") DataSize maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.articleRepository = articleRepository;
+        this.articleArchiveStore = articleArchiveStore;
+        this.articleIdFilter = articleIdFilter;
+        this.compress = "deflate".equalsIgnoreCase(compression);
+        this.compressionThreshold = compressionThreshold.toBytes();
+        this.chunkSize = (int) chunkSize.toBytes();
+        this.maxSize = maxSize.toBytes();
+    }
+
+    /**
+     * Prepares the content of an article for streaming.
+     * Existence is checked right away, so a missing article fails before any content is written;
+     * the returned writer then reads the content from the database in chunks, each with a
+     * connection of its own, and fails if the article changes before the last chunk is read.
+     * The writer may run on another thread, so it carries the current tenant along.
+     * Archived articles are served from the archive.
+     *
+     * @param id The ID of the article
+     * @return Writer that streams the content as UTF-8
+     * @throws ResourceNotFoundException if article is not found
+     */
+    public ContentWriter openContent(Long id) {
+        articleIdFilter.checkArticle(id);
+        if (!articleRepository.existsById(id)) {
+            String archived = articleArchiveStore.find(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Article not found with id: " + id))
+                    .getContent();
+            return output -> output.write(archived.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String tenant = TenantContext.getTenant();
+        return output -> TenantContext.runAs(tenant, () -> {
+            try (InputStream content = openStoredContent(id, tenant)) {
+                content.transferTo(output);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Replaces the content of an article with the UTF-8 text read from the given stream.
+     * The body is spooled to a temporary file, compressed there if compression is enabled,
+     * and then streamed into the database with a known length.
+     *
+     * @param id The ID of the article
+     * @param body The new content
+     * @throws ResourceNotFoundException if article is not found
+     * @throws BadRequestException if the content is empty, too large or not valid UTF-8
+     */
+    public void replaceContent(Long id, InputStream body) throws IOException {
+        articleIdFilter.checkArticle(id);
+        if (!articleRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Article not found with id: " + id);
+        }
+
+        Path plain = Files.createTempFile("article-content", ".txt");
+        Path compressed = null;
+        try {
+            long length = spool(body, plain);
+            if (length == 0) {
+                throw new BadRequestException("Content is required");
+            }
+
+            Path stored = plain;
+            byte format = ArticleContentConverter.FORMAT_PLAIN;
+            if (compress && length >= compressionThreshold) {
+                compressed = Files.createTempFile("article-content", ".deflate");
+                try (InputStream input = Files.newInputStream(plain);
+                     OutputStream output = new DeflaterOutputStream(Files.newOutputStream(compressed), false)) {
+                    input.transferTo(output);
+                }
+                // Keep the plain form when compression does not pay off
+                if (Files.size(compressed) < length) {
+                    stored = compressed;
+                    format = ArticleContentConverter.FORMAT_DEFLATE;
+                }
+            }
+
+            write(id, format, stored);
+        } finally {
+            Files.deleteIfExists(plain);
+            if (compressed != null) {
+                Files.deleteIfExists(compressed);
+            }
+        }
+    }
+
+    /**
+     * Opens a stream over the stored content of an article, decoding its storage format.
+     * Every chunk is read for the version found here, so all chunks come from the same content.
+     */
+    private InputStream openStoredContent(Long id, String tenant) {
+        int format;
+        long version;
+        try {
+            long[] formatAndVersion = jdbcTemplate.queryForObject(SELECT_FORMAT_AND_VERSION,
+                    (rs, rowNum) -> new long[]{rs.getInt(1), rs.getLong(2)}, id, tenant);
+            format = (int) formatAndVersion[0];
+            version = formatAndVersion[1];
+        } catch (EmptyResultDataAccessException ex) {
+            throw new ResourceNotFoundException("Article not found with id: " + id);
+        }
+
+        InputStream stored = new ChunkedContentInputStream(id, tenant, version);
+        return switch ((byte) format) {
+            case ArticleContentConverter.FORMAT_PLAIN -> stored;
+            case ArticleContentConverter.FORMAT_DEFLATE -> new InflaterInputStream(stored);
+            default -> throw new IllegalStateException("Unknown article content format: " + format);
+        };
+    }
+
+    /**
+     * Copies the request body to a file, checking its size and that it is valid UTF-8.
+     *
+     * @return Number of bytes written
+     */
+    private long spool(InputStream body, Path target) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        byte[] buffer = new byte[chunkSize];
+        ByteBuffer pending = ByteBuffer.allocate(chunkSize + 4);
+        CharBuffer chars = CharBuffer.allocate(chunkSize);
+        long length = 0;
+
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(target), chunkSize)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                length += read;
+                if (length > maxSize) {
+                    throw new BadRequestException("Content exceeds the maximum size of " + maxSize + " bytes");
+                }
+                output.write(buffer, 0, read);
+
+                // Decode only to validate; a multi-byte sequence may straddle two reads
+                pending.put(buffer, 0, read).flip();
+                validate(decoder, pending, chars, false);
+                pending.compact();
+            }
+            pending.flip();
+            validate(decoder, pending, chars, true);
+        }
+        return length;
+    }
+
+    private static void validate(CharsetDecoder decoder, ByteBuffer input, CharBuffer chars, boolean endOfInput) {
+        while (true) {
+            chars.clear();
+            CoderResult result = decoder.decode(input, chars, endOfInput);
+            if (result.isError()) {
+                throw new BadRequestException("Content must be valid UTF-8");
+            }
+            if (result.isUnderflow()) {
+                if (endOfInput && input.hasRemaining()) {
+                    throw new BadRequestException("Content must be valid UTF-8");
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Streams the stored form of the content, prefixed with its format byte, into the database.
+     */
+    private void write(Long id, byte format, Path stored) throws IOException {
+        long length = Files.size(stored) + 1;
+        try (InputStream data = Files.newInputStream(stored);
+             InputStream withFormat = new SequenceInputStream(
+                     new ByteArrayInputStream(new byte[]{format}), data)) {
+            int updated = jdbcTemplate.update(UPDATE_CONTENT, ps -> {
+                ps.setBinaryStream(1, withFormat, length);
+                ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                ps.setLong(3, id);
+                ps.setString(4, TenantContext.getTenant());
+            });
+            if (updated == 0) {
+                throw new ResourceNotFoundException("Article not found with id: " + id);
+            }
+        }
+    }
+
+    /**
+     * Input stream over the stored content of one version of an article that fetches it
+     * chunk by chunk, skipping the leading format byte. Fails when the version is gone.
+     */
+    private class ChunkedContentInputStream extends InputStream {
+
+        private final Long id;
+        private final String tenant;
+        private final long version;
+
+        /**
+         * 1-based position of the next chunk in the stored value.
+         */
+        private int position = 2;
+
+        private byte[] chunk = new byte[0];
+        private int offset;
+        private boolean exhausted;
+
+        ChunkedContentInputStream(Long id, String tenant, long version) {
+            this.id = id;
+            this.tenant = tenant;
+            this.version = version;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[offset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, chunk.length - offset);
+            System.arraycopy(chunk, offset, buffer, off, count);
+            offset += count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if (offset < chunk.length) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+
+            List<byte[]> rows = jdbcTemplate.queryForList(SELECT_CHUNK, byte[].class, position, chunkSize, id, tenant, version);
+            if (rows.isEmpty()) {
+                // Part of the content has been sent, so the response can only be aborted
+                throw new IOException("Article " + id + " was changed or deleted while its content was being read");
+            }
+            byte[] next = rows.get(0);
+            if (next == null || next.length == 0) {
+                exhausted = true;
+                return false;
+            }
+            exhausted = next.length < chunkSize;
+            position += next.length;
+            chunk = next;
+            offset = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Writes article content to an output stream.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,283 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.repository.ArticleArchiveStore;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory set of the IDs of all articles on all shards, used to answer lookups of
+ * nonexistent articles without a query.
+ * An ID is a definite miss when it is not in the set, not archived, and not above the
+ * watermark of its shard's ID range. Everything else is passed on to the database as before,
+ * so the filter can only save queries, never hide an article.
+ * <p>
+ * Other instances insert articles without telling this one, so only refreshes raise the
+ * watermarks, and only to IDs whose articles a refresh is sure to have seen: the highest IDs
+ * read by the previous refresh, once every transaction that was running during that refresh
+ * has ended. An article below such an ID was then either committed before the current refresh
+ * read the table, or was never committed. New articles are therefore answered from the
+ * database until the second refresh after their creation.
+ * IDs are unique across shards, so one set serves all tenants; a hit only means that
+ * some tenant may have the article, and the tenant's own query decides.
+ * The set is kept current by ArticleService and refreshed from the database periodically.
+ */
+@Slf4j
+@Component
+public class ArticleIdFilter {
+
+    private static final String SELECT_IDS = "select id from articles";
+
+    /**
+     * Oldest transaction still running; all transactions before it have ended.
+     */
+    private static final String SELECT_XMIN = "select pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    /**
+     * First transaction not yet started; all transactions running now are before it.
+     */
+    private static final String SELECT_XMAX = "select pg_snapshot_xmax(pg_current_snapshot())::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ArticleArchiveStore articleArchiveStore;
+    private final Counter shortCircuited;
+    private final Counter passed;
+
+    /**
+     * IDs of the articles in the database. Guarded by lock.
+     */
+    private Roaring64Bitmap ids = new Roaring64Bitmap();
+
+    /**
+     * Highest article ID per ID block (the range of IDs allocated by one shard) below which
+     * the set is complete; lookups above it always reach the database. Guarded by lock.
+     */
+    private final Map<Long, Long> highWatermarks = new HashMap<>();
+
+    /**
+     * Highest IDs per ID block read by the last refresh, which become the watermarks once
+     * the transactions running during that refresh have ended. Only used by refresh.
+     */
+    private Map<Long, Long> pendingWatermarks = Map.of();
+
+    /**
+     * Per shard, the first transaction started after the last refresh read the table.
+     * Only used by refresh.
+     */
+    private Map<String, Long> pendingXmax = Map.of();
+
+    /**
+     * Changes made while a refresh is scanning the table, replayed onto its result.
+     * Null when no refresh is running. Guarded by lock.
+     */
+    private List<Change> changesDuringRefresh;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ArticleIdFilter(JdbcTemplate jdbcTemplate,
+                           Shards shards,
+                           ArticleArchiveStore articleArchiveStore,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.articleArchiveStore = articleArchiveStore;
+        this.shortCircuited = Counter.builder("blog.article.lookups")
+                .description("Article lookups, by whether the ID filter answered them without a query")
+                .tag("outcome", "short-circuited")
+                .register(meterRegistry);
+        this.passed = Counter.builder("blog.article.lookups")
+                .description("Article lookups, by whether the ID filter answered them without a query")
+                .tag("outcome", "passed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reloads the set from the articles tables of all shards. Changes made while the
+     * tables are scanned are replayed onto the new set before it replaces the current one.
+     * Raises the watermarks to the highest IDs read by the previous refresh, unless a
+     * transaction that was running during that refresh is still running.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${blog.article-filter.refresh-interval:10m}",
+            initialDelayString = "${blog.article-filter.refresh-interval:10m}")
+    public synchronized void refresh() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRefresh = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Roaring64Bitmap loaded = new Roaring64Bitmap();
+        boolean settled = true;
+        Map<String, Long> xmax = new HashMap<>();
+        try {
+            for (String shard : shards.getNames()) {
+                // Read before the scan, so the articles below the pending watermarks are either
+                // committed by the time it reads the table or never will be
+                Long xmin = TenantContext.callOnShard(shard, () -> jdbcTemplate.queryForObject(SELECT_XMIN, Long.class));
+                settled &= xmin >= pendingXmax.getOrDefault(shard, Long.MIN_VALUE);
+                TenantContext.runOnShard(shard, () -> jdbcTemplate.query(SELECT_IDS, rs -> {
+                    loaded.addLong(rs.getLong(1));
+                }));
+                xmax.put(shard, TenantContext.callOnShard(shard, () -> jdbcTemplate.queryForObject(SELECT_XMAX, Long.class)));
+            }
+            loaded.runOptimize();
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRefresh = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+        Map<Long, Long> scanned = watermarks(loaded);
+
+        lock.writeLock().lock();
+        try {
+            for (Change change : changesDuringRefresh) {
+                if (change.added()) {
+                    loaded.addLong(change.id());
+                } else {
+                    loaded.removeLong(change.id());
+                }
+            }
+            changesDuringRefresh = null;
+            ids = loaded;
+            if (settled) {
+                pendingWatermarks.forEach((block, id) -> highWatermarks.merge(block, id, Math::max));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Otherwise the pending watermarks wait for the next refresh
+        if (settled) {
+            pendingWatermarks = scanned;
+            pendingXmax = xmax;
+        }
+        log.debug("Refreshed article ID filter with {} IDs", loaded.getLongCardinality());
+    }
+
+    /**
+     * Throws a 404 right away if the article certainly does not exist.
+     * Returns normally when it may exist, in which case the caller queries as usual.
+     *
+     * @param id The ID of the article
+     * @throws ResourceNotFoundException without a stack trace if the article does not exist
+     */
+    public void checkArticle(Long id) {
+        if (isDefiniteMiss(id)) {
+            throw new ResourceNotFoundException("Article not found with id: " + id, false);
+        }
+    }
+
+    /**
+     * Checks whether an article certainly does not exist, in the database or in the archive.
+     *
+     * @param id The ID of the article
+     * @return true if a lookup of the article is known to miss
+     */
+    public boolean isDefiniteMiss(Long id) {
+        boolean miss;
+        lock.readLock().lock();
+        try {
+            miss = id <= highWatermarks.getOrDefault(Shards.idBlock(id), 0L) && !ids.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+        miss = miss && !articleArchiveStore.contains(id);
+
+        (miss ? shortCircuited : passed).increment();
+        return miss;
+    }
+
+    /**
+     * Records a newly created article. Called once its ID is assigned, before the
+     * creating transaction commits, so the article is never reported missing.
+     * Leaves the watermarks alone: articles of other instances may have lower IDs.
+     *
+     * @param id The ID of the article
+     */
+    public void add(Long id) {
+        lock.writeLock().lock();
+        try {
+            ids.addLong(id);
+            if (changesDuringRefresh != null) {
+                changesDuringRefresh.add(new Change(id, true));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records a deleted or archived article once the deleting transaction commits.
+     *
+     * @param id The ID of the article
+     */
+    public void remove(Long id) {
+        Runnable removal = () -> {
+            lock.writeLock().lock();
+            try {
+                ids.removeLong(id);
+                if (changesDuringRefresh != null) {
+                    changesDuringRefresh.add(new Change(id, false));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            removal.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                removal.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the highest ID of every ID block in the set, jumping from block to block
+     * with rank and select instead of visiting every ID.
+     */
+    private static Map<Long, Long> watermarks(Roaring64Bitmap loaded) {
+        Map<Long, Long> watermarks = new HashMap<>();
+        long cardinality = loaded.getLongCardinality();
+        long position = 0;
+        while (position < cardinality) {
+            long block = Shards.idBlock(loaded.select(position));
+            position = loaded.rankLong(((block + 1) << Shards.ID_BLOCK_BITS) - 1);
+            watermarks.put(block, loaded.select(position - 1));
+        }
+        return watermarks;
+    }
+
+    /**
+     * One addition or removal made while a refresh was running.
+     */
+    private record Change(long id, boolean added) {
+    }
+}
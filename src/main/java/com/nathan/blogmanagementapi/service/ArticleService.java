@@ -1,14 +1,35 @@
 package com.nathan.blogmanagementapi.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.nathan.blogmanagementapi.dto.ArticleDto;
 import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.exception.PreconditionFailedException;
 import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
 import com.nathan.blogmanagementapi.model.Article;
+import com.nathan.blogmanagementapi.model.Comment;
+import com.nathan.blogmanagementapi.repository.ArticleArchiveStore;
 import com.nathan.blogmanagementapi.repository.ArticleRepository;
+import com.nathan.blogmanagementapi.repository.ArticleRepository.ArticleSummary;
+import com.nathan.blogmanagementapi.repository.ArticleRepository.ArticleTag;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -26,46 +47,166 @@ public class ArticleService {
     private final ArticleRepository articleRepository;
 
     /**
-     * Retrieves all articles from the database.
+     * Collapses concurrent loads of the same article into one database fetch.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final RequestCoalescer requestCoalescer;
+
+    /**
+     * Store holding articles moved out of the database by the archive job.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ArticleArchiveStore articleArchiveStore;
+
+    /**
+     * In-memory index of article IDs per tag.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ArticleTagIndex articleTagIndex;
+
+    /**
+     * In-memory set of existing article IDs, used to reject lookups of nonexistent articles.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ArticleIdFilter articleIdFilter;
+
+    /**
+     * In-memory blog statistics, updated on every article write.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final BlogStatsService blogStatsService;
+
+    /**
+     * Validator used to check patched fields against the constraints of ArticleDto.Request.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final Validator validator;
+
+    /**
+     * Retrieves a page of the articles carrying all or any of the given tags.
+     * Matching IDs are computed from the in-memory tag index; only the articles of
+     * the requested page are then loaded, with one IN query.
+     * Archived articles are not included.
      *
-     * @return List of articles converted to DTO responses
+     * @param tags The tags to match, case-insensitive
+     * @param matchAll true to require every tag, false to require at least one
+     * @param page Zero-based page number
+     * @param size Maximum number of articles per page
+     * @return The page of matching articles, ordered by ID
      */
-    public List<ArticleDto.Response> getAllArticles() {
-        return articleRepository.findAll().stream()
-                .map(this::mapToArticleResponse)
-                .collect(Collectors.toList());
+    public ArticleDto.PageResponse getArticlesByTags(Collection<String> tags, boolean matchAll, int page, int size) {
+        ArticleTagIndex.Matches matches = articleTagIndex.find(normalizeTags(tags), matchAll, (long) page * size, size);
+
+        List<ArticleDto.Response> articles = new ArrayList<>(matches.ids().size());
+        if (!matches.ids().isEmpty()) {
+            Map<Long, List<String>> tagsById = groupTags(articleRepository.findTagsByArticleIds(matches.ids()));
+            Map<Long, ArticleSummary> articlesById = articleRepository.findSummariesByIds(matches.ids()).stream()
+                    .collect(Collectors.toMap(ArticleSummary::getId, Function.identity()));
+            for (Long id : matches.ids()) {
+                ArticleSummary article = articlesById.get(id);
+                if (article != null) {
+                    articles.add(mapToArticleResponse(article, tagsById));
+                }
+            }
+        }
+
+        ArticleDto.PageResponse response = new ArticleDto.PageResponse();
+        response.setArticles(articles);
+        response.setPage(page);
+        response.setSize(size);
+        response.setTotalElements(matches.total());
+        return response;
     }
 
     /**
      * Retrieves a specific article by its ID.
      * Includes detailed information with comments.
+     * Concurrent requests for the same ID share a single in-flight load.
+     * Articles that are no longer in the database are read from the archive.
+     * IDs that certainly do not exist are rejected without a query.
      *
      * @param id The ID of the article to retrieve
      * @return Detailed article response with comments
      * @throws ResourceNotFoundException if article is not found
      */
     public ArticleDto.DetailedResponse getArticleById(Long id) {
-        Article article = findArticleById(id);
-        return mapToDetailedArticleResponse(article);
+        articleIdFilter.checkArticle(id);
+        return requestCoalescer.load("article", id, () -> articleRepository.findById(id)
+                .map(this::mapToDetailedArticleResponse)
+                .or(() -> articleArchiveStore.find(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Article not found with id: " + id)));
+    }
+
+    /**
+     * Retrieves several articles by their IDs.
+     * Uses one IN query that also computes the comment counts.
+     * IDs not found in the database are looked up in the archive.
+     * IDs that certainly do not exist are left out of the query.
+     *
+     * @param ids The IDs of the articles to retrieve, in the desired response order
+     * @return Found articles in request order, plus the IDs that were not found
+     */
+    public ArticleDto.BatchResponse getArticlesByIds(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.removeIf(articleIdFilter::isDefiniteMiss);
+        Map<Long, ArticleSummary> articlesById = uniqueIds.isEmpty()
+                ? Map.of()
+                : articleRepository.findSummariesByIds(uniqueIds).stream()
+                        .collect(Collectors.toMap(ArticleSummary::getId, Function.identity()));
+        Map<Long, List<String>> tagsById = articlesById.isEmpty()
+                ? Map.of()
+                : groupTags(articleRepository.findTagsByArticleIds(articlesById.keySet()));
+
+        List<ArticleDto.Response> articles = new ArrayList<>(ids.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            ArticleSummary article = articlesById.get(id);
+            if (article != null) {
+                articles.add(mapToArticleResponse(article, tagsById));
+                continue;
+            }
+
+            articleArchiveStore.find(id).ifPresentOrElse(
+                    archived -> articles.add(mapToArticleResponse(archived)),
+                    () -> {
+                        if (!missingIds.contains(id)) {
+                            missingIds.add(id);
+                        }
+                    });
+        }
+
+        ArticleDto.BatchResponse response = new ArticleDto.BatchResponse();
+        response.setArticles(articles);
+        response.setMissingIds(missingIds);
+        return response;
     }
 
     /**
      * Creates a new article from the request data.
+     * The article is added to the ID filter once it has an ID, and to the tag index on commit.
      *
      * @param articleRequest The article data to create
      * @return The created article as a response DTO
      */
+    @Transactional
     public ArticleDto.Response createArticle(ArticleDto.Request articleRequest) {
         Article article = new Article();
         article.setTitle(articleRequest.getTitle());
         article.setContent(articleRequest.getContent());
+        if (articleRequest.getTags() != null) {
+            article.setTags(normalizeTags(articleRequest.getTags()));
+        }
 
         Article savedArticle = articleRepository.save(article);
+        articleIdFilter.add(savedArticle.getId());
+        articleTagIndex.replace(savedArticle.getId(), savedArticle.getTags());
+        blogStatsService.articleCreated(savedArticle.getId(), savedArticle.getCreatedAt());
         return mapToArticleResponse(savedArticle);
     }
 
     /**
      * Updates an existing article with new data.
+     * Tags are only replaced when the request contains them.
      *
      * @param id The ID of the article to update
      * @param articleRequest The new article data
@@ -77,34 +218,235 @@ public class ArticleService {
 
         article.setTitle(articleRequest.getTitle());
         article.setContent(articleRequest.getContent());
+        if (articleRequest.getTags() != null) {
+            // Modify the collection in place, so only added and removed tags are written
+            Set<String> tags = normalizeTags(articleRequest.getTags());
+            article.getTags().retainAll(tags);
+            article.getTags().addAll(tags);
+        }
 
         Article updatedArticle = articleRepository.save(article);
+        articleTagIndex.replace(updatedArticle.getId(), updatedArticle.getTags());
         return mapToArticleResponse(updatedArticle);
     }
 
     /**
-     * Deletes an article by its ID.
+     * Applies a JSON Merge Patch (RFC 7396) to an article.
+     * Fields missing from the patch are left alone; "title" and "content" can be replaced but
+     * not removed, and "tags": null removes all tags. Each patched field is compared with the
+     * stored value first (content in the database, without loading it), and only the columns
+     * that actually change are written. A patch that changes nothing writes nothing and keeps
+     * the version.
+     *
+     * @param id The ID of the article to patch
+     * @param patch The merge patch document
+     * @param expectedVersion Version the client based the patch on (from If-Match), or null to skip the check
+     * @return The patched article as a response DTO
+     * @throws ResourceNotFoundException if article is not found
+     * @throws PreconditionFailedException if the article's version differs from the expected version
+     * @throws BadRequestException if the patch is not an object, names an unknown field or sets an invalid value
+     */
+    @Transactional
+    public ArticleDto.Response patchArticle(Long id, JsonNode patch, Long expectedVersion) {
+        if (!patch.isObject()) {
+            throw new BadRequestException("Merge patch must be a JSON object");
+        }
+
+        Article article = findArticleById(id);
+        if (expectedVersion != null && !expectedVersion.equals(article.getVersion())) {
+            throw new PreconditionFailedException("Article " + id + " is at version " + article.getVersion()
+                    + ", not " + expectedVersion);
+        }
+
+        // Compare every field before changing any: the content comparison is a query, which
+        // would first flush a dirty article and so write it, and bump its version, twice
+        String title = null;
+        String content = null;
+        Set<String> tags = null;
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "title" -> {
+                    String patched = patchedText("title", value);
+                    title = patched.equals(article.getTitle()) ? null : patched;
+                }
+                case "content" -> {
+                    String patched = patchedText("content", value);
+                    content = articleRepository.hasContent(id, patched) ? null : patched;
+                }
+                case "tags" -> {
+                    Set<String> patched = normalizeTags(patchedTags(value));
+                    tags = patched.equals(article.getTags()) ? null : patched;
+                }
+                default -> throw new BadRequestException("Unknown field: " + field.getKey());
+            }
+        }
+
+        if (title == null && content == null && tags == null) {
+            return mapToArticleResponse(article);
+        }
+
+        if (title != null) {
+            article.setTitle(title);
+        }
+        if (content != null) {
+            article.setContent(content);
+        }
+        if (tags != null) {
+            article.getTags().retainAll(tags);
+            article.getTags().addAll(tags);
+        }
+
+        // Flush now, so the response carries the incremented version
+        Article patchedArticle = articleRepository.saveAndFlush(article);
+        if (tags != null) {
+            articleTagIndex.replace(id, patchedArticle.getTags());
+        }
+        return mapToArticleResponse(patchedArticle);
+    }
+
+    /**
+     * Deletes an article by its ID, from the database or, if it was archived, from the archive.
      *
      * @param id The ID of the article to delete
      * @throws ResourceNotFoundException if article is not found
      */
+    @Transactional
     public void deleteArticle(Long id) {
+        articleIdFilter.checkArticle(id);
+        Optional<Article> article = articleRepository.findById(id);
+        try {
+            if (article.isEmpty()) {
+                if (!articleArchiveStore.remove(id)) {
+                    throw new ResourceNotFoundException("Article not found with id: " + id);
+                }
+                return;
+            }
+            articleRepository.delete(article.get());
+            forgetArticle(article.get());
+            // Drops a record left in the archive by an archiving that did not complete
+            articleArchiveStore.remove(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to remove article " + id + " from the archive", ex);
+        }
+    }
+
+    /**
+     * Moves an article and its comments out of the database into the archive.
+     * The archive record is durable before the database rows are deleted, and is
+     * only readable once they are; if the deletion rolls back, the record is removed.
+     *
+     * @param id The ID of the article to archive
+     * @throws ResourceNotFoundException if article is not found
+     */
+    @Transactional
+    public void archiveArticle(Long id) {
         Article article = findArticleById(id);
+        try {
+            articleArchiveStore.append(mapToDetailedArticleResponse(article));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to archive article " + id, ex);
+        }
         articleRepository.delete(article);
+        forgetArticle(article);
     }
 
     /**
      * Helper method to find an article by ID.
+     * IDs that certainly do not exist are rejected without a query.
      *
      * @param id The ID of the article to find
      * @return The found article
      * @throws ResourceNotFoundException if article is not found
      */
     private Article findArticleById(Long id) {
+        articleIdFilter.checkArticle(id);
         return articleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Article not found with id: " + id));
     }
 
+    /**
+     * Removes a deleted or archived article from the in-memory ID filter, tag index and statistics.
+     *
+     * @param article The article that left the database, with its comments
+     */
+    private void forgetArticle(Article article) {
+        articleIdFilter.remove(article.getId());
+        articleTagIndex.remove(article.getId());
+        blogStatsService.articleRemoved(article.getId(), article.getCreatedAt(),
+                article.getComments().stream().map(Comment::getCreatedAt).toList());
+    }
+
+    /**
+     * Reads a patched text field and checks it against the constraints of ArticleDto.Request.
+     */
+    private String patchedText(String field, JsonNode value) {
+        if (value.isNull()) {
+            throw new BadRequestException("Field '" + field + "' cannot be removed");
+        }
+        if (!value.isTextual()) {
+            throw new BadRequestException("Field '" + field + "' must be a string");
+        }
+        validatePatchedField(field, value.textValue());
+        return value.textValue();
+    }
+
+    /**
+     * Reads the patched tags and checks them against the constraints of ArticleDto.Request.
+     * null removes all tags.
+     */
+    private Set<String> patchedTags(JsonNode value) {
+        if (value.isNull()) {
+            return Set.of();
+        }
+        if (!value.isArray()) {
+            throw new BadRequestException("Field 'tags' must be an array of strings");
+        }
+        Set<String> tags = new LinkedHashSet<>();
+        for (JsonNode tag : value) {
+            if (!tag.isTextual()) {
+                throw new BadRequestException("Field 'tags' must be an array of strings");
+            }
+            tags.add(tag.textValue());
+        }
+        validatePatchedField("tags", tags);
+        return tags;
+    }
+
+    private void validatePatchedField(String field, Object value) {
+        Set<ConstraintViolation<ArticleDto.Request>> violations =
+                validator.validateValue(ArticleDto.Request.class, field, value);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(violations.iterator().next().getMessage());
+        }
+    }
+
+    /**
+     * Normalizes tags to their stored form: trimmed and lowercase.
+     *
+     * @param tags The tags as given by the client
+     * @return The normalized tags in alphabetical order
+     */
+    private static Set<String> normalizeTags(Collection<String> tags) {
+        Set<String> normalized = new TreeSet<>();
+        for (String tag : tags) {
+            normalized.add(tag.trim().toLowerCase(Locale.ROOT));
+        }
+        return normalized;
+    }
+
+    /**
+     * Groups tag rows by article ID, keeping the order of the rows.
+     */
+    private static Map<Long, List<String>> groupTags(List<ArticleTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ArticleTag::getArticleId,
+                Collectors.mapping(ArticleTag::getTag, Collectors.toList())));
+    }
+
+    private static List<String> sortedTags(Collection<String> tags) {
+        return tags == null ? List.of() : tags.stream().sorted().toList();
+    }
+
     /**
      * Maps an Article entity to a basic response DTO.
      *
@@ -118,10 +460,51 @@ public class ArticleService {
         response.setContent(article.getContent());
         response.setCreatedAt(article.getCreatedAt());
         response.setUpdatedAt(article.getUpdatedAt());
+        response.setTags(sortedTags(article.getTags()));
+        response.setVersion(article.getVersion());
         response.setCommentCount(article.getComments().size());
         return response;
     }
 
+    /**
+     * Maps an article summary projection to a basic response DTO.
+     *
+     * @param summary The article summary to map
+     * @param tagsById Tags of the listed articles, keyed by article ID
+     * @return Mapped article response DTO
+     */
+    private ArticleDto.Response mapToArticleResponse(ArticleSummary summary, Map<Long, List<String>> tagsById) {
+        ArticleDto.Response response = new ArticleDto.Response();
+        response.setId(summary.getId());
+        response.setTitle(summary.getTitle());
+        response.setContent(summary.getContent());
+        response.setCreatedAt(summary.getCreatedAt());
+        response.setUpdatedAt(summary.getUpdatedAt());
+        response.setTags(tagsById.getOrDefault(summary.getId(), List.of()));
+        response.setVersion(summary.getVersion());
+        response.setCommentCount(summary.getCommentCount());
+        return response;
+    }
+
+    /**
+     * Maps an archived article to a basic response DTO.
+     *
+     * @param archived The archived article to map
+     * @return Mapped article response DTO
+     */
+    private ArticleDto.Response mapToArticleResponse(ArticleDto.DetailedResponse archived) {
+        ArticleDto.Response response = new ArticleDto.Response();
+        response.setId(archived.getId());
+        response.setTitle(archived.getTitle());
+        response.setContent(archived.getContent());
+        response.setCreatedAt(archived.getCreatedAt());
+        response.setUpdatedAt(archived.getUpdatedAt());
+        response.setTags(sortedTags(archived.getTags()));
+        response.setVersion(archived.getVersion());
+        response.setCommentCount(archived.getComments().size());
+        return response;
+    }
+
     /**
      * Maps an Article entity to a detailed response DTO, including comments.
      *
@@ -135,6 +518,8 @@ public class ArticleService {
         response.setContent(article.getContent());
         response.setCreatedAt(article.getCreatedAt());
         response.setUpdatedAt(article.getUpdatedAt());
+        response.setTags(sortedTags(article.getTags()));
+        response.setVersion(article.getVersion());
 
         // Map all comments to comment DTOs
         response.setComments(article.getComments().stream()
@@ -143,6 +528,9 @@ public class ArticleService {
                     commentResponse.setId(comment.getId());
                     commentResponse.setContent(comment.getContent());
                     commentResponse.setArticleId(article.getId());
+                    commentResponse.setParentId(comment.getParentId());
+                    commentResponse.setDepth(comment.getDepth());
+                    commentResponse.setReplyCount(comment.getReplyCount());
                     commentResponse.setCreatedAt(comment.getCreatedAt());
                     return commentResponse;
                 })
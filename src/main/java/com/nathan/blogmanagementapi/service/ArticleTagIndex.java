@@ -0,0 +1,233 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from tag to the IDs of the articles carrying it.
+ * Each tag maps to a compressed Roaring bitmap, so tag filters are answered with
+ * bitmap intersections and unions instead of database queries. Each tenant has its own
+ * bitmaps. The index is rebuilt from the article_tags table of every shard at startup and
+ * kept current by ArticleService; changes made inside a transaction are applied once it commits.
+ */
+@Slf4j
+@Component
+public class ArticleTagIndex {
+
+    private static final String SELECT_TAGS =
+            "select a.tenant_id, t.article_id, t.tag from article_tags t join articles a on a.id = t.article_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ShardDirectory shardDirectory;
+
+    /**
+     * Article IDs per tag, per tenant. Guarded by lock; bitmaps are never handed out.
+     */
+    private final Map<String, Map<String, Roaring64Bitmap>> articlesByTenant = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ArticleTagIndex(JdbcTemplate jdbcTemplate, Shards shards, ShardDirectory shardDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.shardDirectory = shardDirectory;
+    }
+
+    /**
+     * Rebuilds the index from the database, streaming the tag rows of one shard after another.
+     * Rows of tenants that live on another shard are skipped.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Map<String, Map<String, Roaring64Bitmap>> rebuilt = new HashMap<>();
+        for (String shard : shards.getNames()) {
+            Set<String> tenants = shardDirectory.getTenantsOn(shard);
+            TenantContext.runOnShard(shard, () -> jdbcTemplate.query(SELECT_TAGS, rs -> {
+                String tenant = rs.getString(1);
+                if (tenants.contains(tenant)) {
+                    rebuilt.computeIfAbsent(tenant, key -> new HashMap<>())
+                            .computeIfAbsent(rs.getString(3), tag -> new Roaring64Bitmap())
+                            .addLong(rs.getLong(2));
+                }
+            }));
+        }
+        rebuilt.values().forEach(bitmaps -> bitmaps.values().forEach(Roaring64Bitmap::runOptimize));
+
+        lock.writeLock().lock();
+        try {
+            articlesByTenant.clear();
+            articlesByTenant.putAll(rebuilt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Rebuilt tag index with {} tenants", rebuilt.size());
+    }
+
+    /**
+     * Sets the tags of an article of the current tenant, replacing any tags indexed for it before.
+     *
+     * @param articleId The ID of the article
+     * @param tags The current tags of the article
+     */
+    public void replace(Long articleId, Collection<String> tags) {
+        String tenant = TenantContext.getTenant();
+        List<String> snapshot = List.copyOf(tags);
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeFromAll(tenant, articleId);
+                Map<String, Roaring64Bitmap> articlesByTag = articlesByTenant.computeIfAbsent(tenant, key -> new HashMap<>());
+                for (String tag : snapshot) {
+                    articlesByTag.computeIfAbsent(tag, key -> new Roaring64Bitmap()).addLong(articleId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Removes an article of the current tenant from the index.
+     *
+     * @param articleId The ID of the article
+     */
+    public void remove(Long articleId) {
+        String tenant = TenantContext.getTenant();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeFromAll(tenant, articleId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Finds the IDs of the current tenant's articles carrying all or any of the given tags.
+     *
+     * @param tags The tags to match
+     * @param matchAll true to require every tag, false to require at least one
+     * @param offset Number of matching IDs to skip, in ascending ID order
+     * @param limit Maximum number of IDs to return
+     * @return The requested slice of matching IDs and the total number of matches
+     */
+    public Matches find(Collection<String> tags, boolean matchAll, long offset, int limit) {
+        Roaring64Bitmap matches;
+        lock.readLock().lock();
+        try {
+            Map<String, Roaring64Bitmap> articlesByTag = articlesByTenant.getOrDefault(TenantContext.getTenant(), Map.of());
+            matches = matchAll ? intersect(articlesByTag, tags) : union(articlesByTag, tags);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long total = matches.getLongCardinality();
+        List<Long> ids = new ArrayList<>(limit);
+        if (offset < total) {
+            PeekableLongIterator iterator = matches.getLongIteratorFrom(matches.select(offset));
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add(iterator.next());
+            }
+        }
+        return new Matches(ids, total);
+    }
+
+    /**
+     * Intersects the bitmaps of the given tags, starting from the smallest.
+     */
+    private static Roaring64Bitmap intersect(Map<String, Roaring64Bitmap> articlesByTag, Collection<String> tags) {
+        List<Roaring64Bitmap> bitmaps = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            Roaring64Bitmap bitmap = articlesByTag.get(tag);
+            if (bitmap == null) {
+                return new Roaring64Bitmap();
+            }
+            bitmaps.add(bitmap);
+        }
+        bitmaps.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+
+        Roaring64Bitmap result = copy(bitmaps.get(0));
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            result.and(bitmaps.get(i));
+        }
+        return result;
+    }
+
+    private static Roaring64Bitmap union(Map<String, Roaring64Bitmap> articlesByTag, Collection<String> tags) {
+        Roaring64Bitmap result = new Roaring64Bitmap();
+        for (String tag : tags) {
+            Roaring64Bitmap bitmap = articlesByTag.get(tag);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private void removeFromAll(String tenant, Long articleId) {
+        Map<String, Roaring64Bitmap> articlesByTag = articlesByTenant.get(tenant);
+        if (articlesByTag == null) {
+            return;
+        }
+        articlesByTag.values().removeIf(bitmap -> {
+            bitmap.removeLong(articleId);
+            return bitmap.isEmpty();
+        });
+        if (articlesByTag.isEmpty()) {
+            articlesByTenant.remove(tenant);
+        }
+    }
+
+    private static Roaring64Bitmap copy(Roaring64Bitmap bitmap) {
+        Roaring64Bitmap copy = new Roaring64Bitmap();
+        copy.or(bitmap);
+        return copy;
+    }
+
+    /**
+     * Runs an index change once the current transaction commits, or right away outside a transaction,
+     * so the index never reflects changes that are rolled back.
+     */
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * One slice of the articles matching a tag filter.
+     *
+     * @param ids Matching article IDs of the slice, in ascending order
+     * @param total Number of matching articles overall
+     */
+    public record Matches(List<Long> ids, long total) {
+    }
+}
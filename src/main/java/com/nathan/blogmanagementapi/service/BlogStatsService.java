@@ -0,0 +1,574 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.dto.StatsDto;
+import com.nathan.blogmanagementapi.repository.ArticleArchiveStore;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Service class for blog statistics.
+ * Totals, per-day histograms and comment counts per article are kept in memory, per tenant,
+ * and updated from the article and comment write paths once their transactions commit, so
+ * reading the statistics never queries the database. The state is periodically reconciled
+ * against SQL aggregates from every shard, which corrects any drift, and checkpointed to a
+ * JSON file that is loaded on startup.
+ * Changes committed while a reconciliation runs carry the ID of their transaction, so such a
+ * change is applied to reconciled statistics only if the snapshot they were read from does not
+ * already include it. Reading the ID costs a query at commit, so it is only read then; the other
+ * changes cost no query, and a reconciliation waits for those still committing before it reads.
+ * Writes made through other instances are only counted by the next reconciliation, so the
+ * statistics of one instance lag them by up to blog.stats.reconcile-interval.
+ */
+@Slf4j
+@Service
+public class BlogStatsService {
+
+    private static final Comparator<StatsDto.ArticleCommentCount> MOST_COMMENTED_FIRST =
+            Comparator.comparingInt(StatsDto.ArticleCommentCount::getCommentCount).reversed()
+                    .thenComparing(StatsDto.ArticleCommentCount::getArticleId);
+
+    private static final String COUNT_ARTICLES_PER_DAY =
+            "select tenant_id, cast(created_at as date), count(*) from articles group by 1, 2";
+
+    private static final String COUNT_COMMENTS_PER_DAY =
+            "select tenant_id, cast(created_at as date), count(*) from comments group by 1, 2";
+
+    private static final String COUNT_COMMENTS_PER_ARTICLE =
+            "select tenant_id, article_id, count(*) from comments group by 1, 2";
+
+    // Null for a transaction that has not written anything, which does not get an ID just for this
+    private static final String SELECT_TRANSACTION_ID = "select pg_current_xact_id_if_assigned()::text::bigint";
+
+    private static final String SELECT_SNAPSHOT = "select pg_current_snapshot()::text";
+
+    private static final TypeReference<Map<String, State>> CHECKPOINT_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ShardDirectory shardDirectory;
+    private final TransactionTemplate readTransaction;
+    private final ArticleArchiveStore articleArchiveStore;
+    private final ObjectMapper objectMapper;
+    private final Path checkpointFile;
+    private final int histogramDays;
+    private final int topArticles;
+
+    /**
+     * Current statistics, keyed by tenant. Guarded by this.
+     */
+    private Map<String, State> states = new HashMap<>();
+
+    /**
+     * Articles with the most comments, most commented first, keyed by tenant. Guarded by this.
+     */
+    private Map<String, List<StatsDto.ArticleCommentCount>> mostCommented = new HashMap<>();
+
+    /**
+     * Changes applied while a reconciliation is reading the database, replayed onto its result
+     * unless the snapshot it read already includes them. Null when no reconciliation is running.
+     * Guarded by this.
+     */
+    private List<Change> changesDuringReconcile;
+
+    /**
+     * Transactions committing changes without having read their ID, because no reconciliation
+     * was running when they started to commit. Guarded by this.
+     */
+    private int unnumberedCommits;
+
+    /**
+     * Snapshot each tenant's statistics were last reconciled from, keyed by tenant.
+     * Guarded by this.
+     */
+    private Map<String, Snapshot> snapshots = new HashMap<>();
+
+    /**
+     * Responses built from the current states, keyed by tenant. A tenant's response is
+     * removed when its state changes.
+     */
+    private final Map<String, StatsDto.Response> cachedResponses = new ConcurrentHashMap<>();
+
+    public BlogStatsService(JdbcTemplate jdbcTemplate,
+                            Shards shards,
+                            ShardDirectory shardDirectory,
+                            PlatformTransactionManager transactionManager,
+                            ArticleArchiveStore articleArchiveStore,
+                            ObjectMapper objectMapper,
+                            @Value("${blog.stats.checkpoint-file:stats/checkpoint.json}") Path checkpointFile,
+                            @Value("${blog.stats.histogram-days:30}") int histogramDays,
+                            @Value("${blog.stats.top-articles:10}") int topArticles) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.shardDirectory = shardDirectory;
+        this.articleArchiveStore = articleArchiveStore;
+        this.objectMapper = objectMapper;
+        this.checkpointFile = checkpointFile;
+        this.histogramDays = histogramDays;
+        this.topArticles = topArticles;
+
+        // All aggregates of one reconciliation are read from the same snapshot
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Loads the last checkpoint, or reconciles right away when there is none.
+     */
+    @PostConstruct
+    void loadCheckpoint() {
+        if (Files.exists(checkpointFile)) {
+            try {
+                Map<String, State> loaded = objectMapper.readValue(checkpointFile.toFile(), CHECKPOINT_TYPE);
+                synchronized (this) {
+                    states = loaded;
+                    mostCommented = computeMostCommented(loaded);
+                    cachedResponses.clear();
+                }
+                log.info("Loaded statistics checkpoint from {}", checkpointFile.toAbsolutePath());
+                return;
+            } catch (IOException ex) {
+                log.warn("Ignoring unreadable statistics checkpoint {}", checkpointFile.toAbsolutePath(), ex);
+            }
+        }
+        reconcile();
+    }
+
+    /**
+     * Writes a final checkpoint on shutdown, so a restart starts from the exact state.
+     */
+    @PreDestroy
+    void writeFinalCheckpoint() {
+        writeCheckpoint();
+    }
+
+    /**
+     * Returns the current tenant's statistics. Served from memory; the response is rebuilt only
+     * after the statistics have changed, in time independent of the number of articles.
+     *
+     * @return The blog statistics
+     */
+    public StatsDto.Response getStats() {
+        String tenant = TenantContext.getTenant();
+        StatsDto.Response response = cachedResponses.get(tenant);
+        // The histograms end today, so a response built on an earlier day is stale as well
+        if (response != null && response.getArticlesPerDay().get(histogramDays - 1).getDate().equals(LocalDate.now())) {
+            return response;
+        }
+        synchronized (this) {
+            response = buildResponse(tenant);
+            cachedResponses.put(tenant, response);
+            return response;
+        }
+    }
+
+    /**
+     * Records a new article of the current tenant once the current transaction commits.
+     *
+     * @param articleId The ID of the article
+     * @param createdAt Creation time of the article
+     */
+    public void articleCreated(Long articleId, LocalDateTime createdAt) {
+        LocalDate day = createdAt.toLocalDate();
+        afterCommit(articleId, current -> {
+            current.articleCount++;
+            current.articlesPerDay.merge(day, 1L, Long::sum);
+        });
+    }
+
+    /**
+     * Records an article of the current tenant leaving the database, through deletion or
+     * archiving, together with its comments, once the current transaction commits.
+     *
+     * @param articleId The ID of the article
+     * @param createdAt Creation time of the article
+     * @param commentCreatedAt Creation times of the article's comments
+     */
+    public void articleRemoved(Long articleId, LocalDateTime createdAt, Collection<LocalDateTime> commentCreatedAt) {
+        LocalDate day = createdAt.toLocalDate();
+        List<LocalDate> commentDays = commentCreatedAt.stream().map(LocalDateTime::toLocalDate).toList();
+        afterCommit(articleId, current -> {
+            current.articleCount--;
+            decrement(current.articlesPerDay, day);
+            current.commentCount -= commentDays.size();
+            commentDays.forEach(commentDay -> decrement(current.commentsPerDay, commentDay));
+            current.commentsByArticle.remove(articleId);
+        });
+    }
+
+    /**
+     * Records a new comment of the current tenant once the current transaction commits.
+     *
+     * @param articleId The ID of the article the comment belongs to
+     * @param createdAt Creation time of the comment
+     */
+    public void commentCreated(Long articleId, LocalDateTime createdAt) {
+        LocalDate day = createdAt.toLocalDate();
+        afterCommit(articleId, current -> {
+            current.commentCount++;
+            current.commentsPerDay.merge(day, 1L, Long::sum);
+            current.commentsByArticle.merge(articleId, 1, Integer::sum);
+        });
+    }
+
+    /**
+     * Replaces the in-memory statistics with SQL aggregates and writes a checkpoint.
+     * Each shard is read in its own snapshot, counting only the tenants that live on it.
+     * Changes applied while the aggregates are read are replayed onto the result, except
+     * those whose transaction is visible in the snapshot of the tenant's shard.
+     */
+    @Scheduled(fixedDelayString = "${blog.stats.reconcile-interval:15m}",
+            initialDelayString = "${blog.stats.reconcile-interval:15m}")
+    public void reconcile() {
+        synchronized (this) {
+            changesDuringReconcile = new ArrayList<>();
+            // Their changes are then in every snapshot read below, so they are never replayed
+            try {
+                while (unnumberedCommits > 0) {
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                changesDuringReconcile = null;
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for commits before reconciling statistics", ex);
+            }
+        }
+
+        Map<String, State> reconciled = new HashMap<>();
+        Map<String, Snapshot> reconciledSnapshots = new HashMap<>();
+        try {
+            for (String shard : shards.getNames()) {
+                Set<String> tenants = shardDirectory.getTenantsOn(shard);
+                Snapshot snapshot = TenantContext.callOnShard(shard, () -> readTransaction.execute(
+                        status -> readFromDatabase(shard, tenants, reconciled)));
+                tenants.forEach(tenant -> reconciledSnapshots.put(tenant, snapshot));
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                changesDuringReconcile = null;
+            }
+            throw ex;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            shardDirectory.getTenants().keySet().forEach(tenant -> reconciled.computeIfAbsent(tenant, key -> new State()));
+            reconciled.forEach((tenant, reconciledState) -> {
+                State current = states.get(tenant);
+                if (current != null && current.reconciledAt != null
+                        && (reconciledState.articleCount != current.articleCount
+                        || reconciledState.commentCount != current.commentCount)) {
+                    log.info("Reconciled statistics of tenant {}: {} articles and {} comments in memory, {} and {} in the database",
+                            tenant, current.articleCount, current.commentCount,
+                            reconciledState.articleCount, reconciledState.commentCount);
+                }
+            });
+            changesDuringReconcile.stream()
+                    .filter(change -> !isIncluded(reconciledSnapshots, change))
+                    .forEach(change -> change.change().accept(reconciled.computeIfAbsent(change.tenant(), key -> new State())));
+            changesDuringReconcile = null;
+            reconciled.values().forEach(reconciledState -> reconciledState.reconciledAt = now);
+            states = reconciled;
+            snapshots = reconciledSnapshots;
+            mostCommented = computeMostCommented(reconciled);
+            cachedResponses.clear();
+        }
+        writeCheckpoint();
+    }
+
+    /**
+     * Adds the statistics of the given tenants from one shard. Runs inside the read transaction.
+     *
+     * @return The snapshot the statistics were read from
+     */
+    private Snapshot readFromDatabase(String shard, Set<String> tenants, Map<String, State> loaded) {
+        // The first statement fixes the snapshot of the transaction, so it is the one all aggregates see
+        Snapshot snapshot = Snapshot.parse(shard, jdbcTemplate.queryForObject(SELECT_SNAPSHOT, String.class));
+        jdbcTemplate.query(COUNT_ARTICLES_PER_DAY, rs -> {
+            State tenantState = stateOf(loaded, tenants, rs.getString(1));
+            if (tenantState != null) {
+                long count = rs.getLong(3);
+                tenantState.articlesPerDay.put(rs.getDate(2).toLocalDate(), count);
+                tenantState.articleCount += count;
+            }
+        });
+        jdbcTemplate.query(COUNT_COMMENTS_PER_DAY, rs -> {
+            State tenantState = stateOf(loaded, tenants, rs.getString(1));
+            if (tenantState != null) {
+                long count = rs.getLong(3);
+                tenantState.commentsPerDay.put(rs.getDate(2).toLocalDate(), count);
+                tenantState.commentCount += count;
+            }
+        });
+        jdbcTemplate.query(COUNT_COMMENTS_PER_ARTICLE, rs -> {
+            State tenantState = stateOf(loaded, tenants, rs.getString(1));
+            if (tenantState != null) {
+                tenantState.commentsByArticle.put(rs.getLong(2), rs.getInt(3));
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Returns the state of a tenant whose rows are being read, or null for rows of a tenant
+     * living on another shard, such as copies left behind by a tenant move.
+     */
+    private static State stateOf(Map<String, State> loaded, Set<String> tenants, String tenant) {
+        return tenants.contains(tenant) ? loaded.computeIfAbsent(tenant, key -> new State()) : null;
+    }
+
+    /**
+     * Writes the current state to the checkpoint file, replacing the previous checkpoint atomically.
+     */
+    private void writeCheckpoint() {
+        try {
+            byte[] json;
+            synchronized (this) {
+                json = objectMapper.writeValueAsBytes(states);
+            }
+            Path directory = checkpointFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "checkpoint", ".tmp");
+            Files.write(temporary, json);
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Failed to write statistics checkpoint {}", checkpointFile.toAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Applies a change once the current transaction commits, or right away outside a transaction,
+     * so the statistics never count changes that are rolled back.
+     */
+    private void afterCommit(Long articleId, Consumer<State> change) {
+        String tenant = TenantContext.getTenant();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(new Change(tenant, null, null, change), articleId, true);
+            return;
+        }
+        String shard = shardDirectory.shardOf(tenant);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean unnumbered;
+            private Long transactionId;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (BlogStatsService.this) {
+                    unnumbered = changesDuringReconcile == null;
+                    if (unnumbered) {
+                        unnumberedCommits++;
+                        return;
+                    }
+                }
+                // Runs on the transaction's connection, so it returns the ID the transaction commits under
+                transactionId = jdbcTemplate.queryForObject(SELECT_TRANSACTION_ID, Long.class);
+            }
+
+            @Override
+            public void afterCommit() {
+                apply(new Change(tenant, shard, transactionId, change), articleId, !unnumbered);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (unnumbered) {
+                    synchronized (BlogStatsService.this) {
+                        unnumberedCommits--;
+                        BlogStatsService.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a change to the current statistics.
+     *
+     * @param journal Whether a running reconciliation may have to replay the change; false for
+     *                changes it waited for, which are in every snapshot it reads
+     */
+    private synchronized void apply(Change change, Long articleId, boolean journal) {
+        String tenant = change.tenant();
+        // A callback running late may belong to a transaction that the last reconciliation already counted
+        if (isIncluded(snapshots, change)) {
+            return;
+        }
+        State current = states.computeIfAbsent(tenant, key -> new State());
+        change.change().accept(current);
+        if (changesDuringReconcile != null && journal) {
+            changesDuringReconcile.add(change);
+        }
+        mostCommented.put(tenant, updateMostCommented(current, mostCommented.getOrDefault(tenant, List.of()), articleId));
+        cachedResponses.remove(tenant);
+    }
+
+    /**
+     * Updates the most commented articles after a change to the given article's comment count.
+     * Only when an article in the list loses comments or disappears does this fall back to
+     * scanning all counts.
+     */
+    private List<StatsDto.ArticleCommentCount> updateMostCommented(State current,
+                                                                  List<StatsDto.ArticleCommentCount> mostCommented,
+                                                                  Long changedArticleId) {
+        List<StatsDto.ArticleCommentCount> updated = new ArrayList<>(mostCommented.size() + 1);
+        boolean listed = false;
+        for (StatsDto.ArticleCommentCount entry : mostCommented) {
+            Integer count = current.commentsByArticle.get(entry.getArticleId());
+            if (count == null || count < entry.getCommentCount()) {
+                return computeMostCommented(current);
+            }
+            updated.add(new StatsDto.ArticleCommentCount(entry.getArticleId(), count));
+            listed |= entry.getArticleId().equals(changedArticleId);
+        }
+
+        Integer count = current.commentsByArticle.get(changedArticleId);
+        if (!listed && count != null) {
+            updated.add(new StatsDto.ArticleCommentCount(changedArticleId, count));
+        }
+        updated.sort(MOST_COMMENTED_FIRST);
+        return updated.size() > topArticles ? List.copyOf(updated.subList(0, topArticles)) : updated;
+    }
+
+    private Map<String, List<StatsDto.ArticleCommentCount>> computeMostCommented(Map<String, State> byTenant) {
+        Map<String, List<StatsDto.ArticleCommentCount>> computed = new HashMap<>();
+        byTenant.forEach((tenant, current) -> computed.put(tenant, computeMostCommented(current)));
+        return computed;
+    }
+
+    private List<StatsDto.ArticleCommentCount> computeMostCommented(State current) {
+        return current.commentsByArticle.entrySet().stream()
+                .map(entry -> new StatsDto.ArticleCommentCount(entry.getKey(), entry.getValue()))
+                .sorted(MOST_COMMENTED_FIRST)
+                .limit(topArticles)
+                .toList();
+    }
+
+    private StatsDto.Response buildResponse(String tenant) {
+        State state = states.getOrDefault(tenant, new State());
+        StatsDto.Response response = new StatsDto.Response();
+        response.setArticleCount(state.articleCount);
+        response.setCommentCount(state.commentCount);
+        response.setArchivedArticleCount(articleArchiveStore.size());
+        response.setAverageCommentsPerArticle(
+                state.articleCount == 0 ? 0 : (double) state.commentCount / state.articleCount);
+        response.setArticlesPerDay(histogram(state.articlesPerDay));
+        response.setCommentsPerDay(histogram(state.commentsPerDay));
+        response.setMostCommentedArticles(mostCommented.getOrDefault(tenant, List.of()));
+        response.setReconciledAt(state.reconciledAt);
+        return response;
+    }
+
+    /**
+     * Returns the counts of the most recent days, including days without any items.
+     */
+    private List<StatsDto.DayCount> histogram(NavigableMap<LocalDate, Long> perDay) {
+        LocalDate today = LocalDate.now();
+        List<StatsDto.DayCount> days = new ArrayList<>(histogramDays);
+        for (LocalDate day = today.minusDays(histogramDays - 1); !day.isAfter(today); day = day.plusDays(1)) {
+            days.add(new StatsDto.DayCount(day, perDay.getOrDefault(day, 0L)));
+        }
+        return days;
+    }
+
+    private static void decrement(Map<LocalDate, Long> perDay, LocalDate day) {
+        perDay.computeIfPresent(day, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Checks whether reconciled statistics already include a change: the change's transaction ran
+     * on the shard the tenant was reconciled from and is visible in the snapshot read there.
+     */
+    private static boolean isIncluded(Map<String, Snapshot> snapshots, Change change) {
+        if (change.transactionId() == null) {
+            return false;
+        }
+        Snapshot snapshot = snapshots.get(change.tenant());
+        return snapshot != null && snapshot.shard().equals(change.shard()) && snapshot.isVisible(change.transactionId());
+    }
+
+    /**
+     * A change to the statistics of one tenant, with the shard and ID of the transaction that
+     * made it, or null IDs for a change made outside a transaction. Journaled while a
+     * reconciliation runs.
+     */
+    private record Change(String tenant, String shard, Long transactionId, Consumer<State> change) {
+    }
+
+    /**
+     * A PostgreSQL snapshot of one shard: transactions below xmin had finished when it was taken,
+     * transactions from xmax on had not started, and those listed in between were still running.
+     */
+    private record Snapshot(String shard, long xmin, long xmax, Set<Long> running) {
+
+        /**
+         * Parses the text form of pg_current_snapshot(), "xmin:xmax:xip,xip,...".
+         */
+        static Snapshot parse(String shard, String text) {
+            String[] parts = text.split(":", 3);
+            Set<Long> running = new HashSet<>();
+            if (!parts[2].isEmpty()) {
+                for (String xid : parts[2].split(",")) {
+                    running.add(Long.parseLong(xid));
+                }
+            }
+            return new Snapshot(shard, Long.parseLong(parts[0]), Long.parseLong(parts[1]), running);
+        }
+
+        /**
+         * Checks whether the changes of a committed transaction are visible in the snapshot,
+         * as pg_visible_in_snapshot does.
+         */
+        boolean isVisible(long transactionId) {
+            return transactionId < xmin || (transactionId < xmax && !running.contains(transactionId));
+        }
+    }
+
+    /**
+     * Statistics state of one tenant, as kept in memory and written to the checkpoint file.
+     */
+    @Data
+    static class State {
+        private long articleCount;
+        private long commentCount;
+        private TreeMap<LocalDate, Long> articlesPerDay = new TreeMap<>();
+        private TreeMap<LocalDate, Long> commentsPerDay = new TreeMap<>();
+        private Map<Long, Integer> commentsByArticle = new HashMap<>();
+        private LocalDateTime reconciledAt;
+    }
+}
@@ -1,16 +1,21 @@
 package com.nathan.blogmanagementapi.service;
 
 import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
 import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
 import com.nathan.blogmanagementapi.model.Article;
 import com.nathan.blogmanagementapi.model.Comment;
 import com.nathan.blogmanagementapi.repository.ArticleRepository;
 import com.nathan.blogmanagementapi.repository.CommentRepository;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Service class for Comment operations.
@@ -20,6 +25,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CommentService {
 
+    /**
+     * Length of one path segment: 16 hex digits and the '.' terminator.
+     */
+    private static final int SEGMENT_LENGTH = 17;
+
+    /**
+     * Deepest nesting level whose path still fits into the 255 character path column.
+     */
+    private static final int MAX_DEPTH = 255 / SEGMENT_LENGTH - 1;
+
     /**
      * Repository for Comment entity operations.
      * Injected through constructor (RequiredArgsConstructor).
@@ -33,45 +48,158 @@ public class CommentService {
     private final ArticleRepository articleRepository;
 
     /**
-     * Retrieves all comments for a specific article.
+     * In-memory set of existing article IDs, used to reject lookups of nonexistent articles.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ArticleIdFilter articleIdFilter;
+
+    /**
+     * In-memory blog statistics, updated on every comment write.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final BlogStatsService blogStatsService;
+
+    /**
+     * Retrieves a comment together with all of its replies, at any depth.
      *
-     * @param articleId The ID of the article for which to retrieve comments
-     * @return List of comments for the specified article
+     * @param articleId The ID of the article to which the comment belongs
+     * @param commentId The ID of the comment at the top of the thread
+     * @return The comment with its replies nested below it
+     * @throws ResourceNotFoundException if the comment is not found on the article
+     */
+    public CommentDto.ThreadNode getThread(Long articleId, Long commentId) {
+        Comment comment = commentRepository.findById(commentId)
+                .filter(found -> found.getArticle().getId().equals(articleId))
+                .orElseThrow(() -> new ResourceNotFoundException("Comment not found with id: " + commentId));
+
+        List<Comment> subtree = commentRepository.findByPathRange(articleId, comment.getPath(), subtreeEnd(comment.getPath()));
+        return assembleThreads(subtree).get(0);
+    }
+
+    /**
+     * Retrieves a page of top-level comment threads for an article.
+     * Each top-level comment comes with its first replies in depth-first order,
+     * so every included reply is accompanied by the comments it replies to.
+     *
+     * @param articleId The ID of the article
+     * @param after ID of the last top-level comment of the previous page, or null for the first page
+     * @param size Maximum number of top-level comments
+     * @param replies Maximum number of replies to include per top-level comment
+     * @return The page of threads
      * @throws ResourceNotFoundException if article is not found
      */
-    public List<CommentDto.Response> getCommentsByArticleId(Long articleId) {
-        // Verify article exists
+    public CommentDto.ThreadPage getThreads(Long articleId, Long after, int size, int replies) {
+        articleIdFilter.checkArticle(articleId);
         if (!articleRepository.existsById(articleId)) {
             throw new ResourceNotFoundException("Article not found with id: " + articleId);
         }
 
-        return commentRepository.findByArticleId(articleId).stream()
-                .map(this::mapToCommentResponse)
-                .collect(Collectors.toList());
+        String afterPath = after != null ? pathSegment(after) : "";
+        List<CommentDto.ThreadNode> threads = assembleThreads(
+                commentRepository.findThreadPage(TenantContext.getTenant(), articleId, afterPath, size, replies));
+
+        CommentDto.ThreadPage page = new CommentDto.ThreadPage();
+        page.setThreads(threads);
+        page.setNextAfter(threads.size() == size ? threads.get(threads.size() - 1).getId() : null);
+        return page;
     }
 
     /**
-     * Creates a new comment for an article.
+     * Creates a new comment for an article, or a reply when a parent comment is given.
+     * The comment's path is derived from its parent's path and its own ID, and the
+     * reply counts of all its ancestors are incremented in a single update.
      *
      * @param articleId The ID of the article to which the comment belongs
      * @param commentRequest The comment data to create
      * @return The created comment as a response DTO
-     * @throws ResourceNotFoundException if article is not found
+     * @throws ResourceNotFoundException if article or parent comment is not found
+     * @throws BadRequestException if the reply would be nested too deeply
      */
+    @Transactional
     public CommentDto.Response createComment(Long articleId, CommentDto.Request commentRequest) {
+        articleIdFilter.checkArticle(articleId);
+
         // Find the article to which this comment belongs
         Article article = articleRepository.findById(articleId)
                 .orElseThrow(() -> new ResourceNotFoundException("Article not found with id: " + articleId));
 
+        Comment parent = null;
+        if (commentRequest.getParentId() != null) {
+            Long parentId = commentRequest.getParentId();
+            parent = commentRepository.findById(parentId)
+                    .filter(found -> found.getArticle().getId().equals(articleId))
+                    .orElseThrow(() -> new ResourceNotFoundException("Comment not found with id: " + parentId));
+            if (parent.getDepth() >= MAX_DEPTH) {
+                throw new BadRequestException("Replies cannot be nested more than " + MAX_DEPTH + " levels deep");
+            }
+        }
+
         // Create and save the new comment
         Comment comment = new Comment();
         comment.setContent(commentRequest.getContent());
         comment.setArticle(article);
 
         Comment savedComment = commentRepository.save(comment);
+
+        // The path includes the comment's own ID, so it is set once the ID is assigned
+        if (parent == null) {
+            savedComment.setPath(pathSegment(savedComment.getId()));
+        } else {
+            savedComment.setParentId(parent.getId());
+            savedComment.setDepth(parent.getDepth() + 1);
+            savedComment.setPath(parent.getPath() + pathSegment(savedComment.getId()));
+            commentRepository.incrementReplyCounts(ancestorIds(parent.getPath()));
+        }
+        blogStatsService.commentCreated(articleId, savedComment.getCreatedAt());
         return mapToCommentResponse(savedComment);
     }
 
+    /**
+     * Builds comment trees from comments listed in depth-first order.
+     * Comments whose parent is not part of the list become roots.
+     */
+    private List<CommentDto.ThreadNode> assembleThreads(List<Comment> comments) {
+        Map<Long, CommentDto.ThreadNode> nodes = new HashMap<>();
+        List<CommentDto.ThreadNode> roots = new ArrayList<>();
+        for (Comment comment : comments) {
+            CommentDto.ThreadNode node = mapToThreadNode(comment);
+            nodes.put(node.getId(), node);
+            CommentDto.ThreadNode parent = comment.getParentId() != null ? nodes.get(comment.getParentId()) : null;
+            if (parent != null) {
+                parent.getReplies().add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Returns the path segment of a comment ID: 16 hex digits followed by '.'.
+     */
+    private static String pathSegment(Long id) {
+        return String.format("%016x.", id);
+    }
+
+    /**
+     * Returns the first path after all paths of the given comment's subtree.
+     * '/' sorts directly after '.', and before every hex digit.
+     */
+    private static String subtreeEnd(String path) {
+        return path.substring(0, path.length() - 1) + '/';
+    }
+
+    /**
+     * Extracts the comment IDs from a path, outermost ancestor first.
+     */
+    private static List<Long> ancestorIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        for (int start = 0; start < path.length(); start += SEGMENT_LENGTH) {
+            ids.add(Long.parseUnsignedLong(path, start, start + SEGMENT_LENGTH - 1, 16));
+        }
+        return ids;
+    }
+
     /**
      * Maps a Comment entity to a response DTO.
      *
@@ -83,7 +211,28 @@ public class CommentService {
         response.setId(comment.getId());
         response.setContent(comment.getContent());
         response.setArticleId(comment.getArticle().getId());
+        response.setParentId(comment.getParentId());
+        response.setDepth(comment.getDepth());
+        response.setReplyCount(comment.getReplyCount());
         response.setCreatedAt(comment.getCreatedAt());
         return response;
     }
+
+    /**
+     * Maps a Comment entity to a thread node without replies.
+     *
+     * @param comment The comment entity to map
+     * @return Mapped thread node
+     */
+    private CommentDto.ThreadNode mapToThreadNode(Comment comment) {
+        CommentDto.ThreadNode node = new CommentDto.ThreadNode();
+        node.setId(comment.getId());
+        node.setContent(comment.getContent());
+        node.setArticleId(comment.getArticle().getId());
+        node.setParentId(comment.getParentId());
+        node.setDepth(comment.getDepth());
+        node.setReplyCount(comment.getReplyCount());
+        node.setCreatedAt(comment.getCreatedAt());
+        return node;
+    }
 }
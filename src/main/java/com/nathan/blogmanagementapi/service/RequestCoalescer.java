@@ -0,0 +1,126 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.exception.LoadTimeoutException;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical loads into a single in-flight execution.
+ * The first caller for a key runs the loader; callers arriving while it is
+ * still running wait for the same result (or exception) instead of querying
+ * the database again. Loads of different tenants are never shared.
+ */
+@Component
+public class RequestCoalescer {
+
+    /**
+     * Loads currently running, keyed by tenant, load name and key.
+     */
+    private final ConcurrentMap<LoadKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Registry used to publish the collapsed load counters.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Maximum time a waiting caller blocks on another caller's load.
+     */
+    private final Duration timeout;
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${blog.coalescing.timeout:5s}") Duration timeout) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the loader, or joins an identical load that is already in flight.
+     *
+     * @param name The kind of load, used to separate key spaces and tag metrics
+     * @param key The key identifying the load within its kind
+     * @param loader The loader to run if no identical load is in flight
+     * @return The loaded value
+     * @throws LoadTimeoutException if waiting on another caller's load times out
+     */
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        LoadKey loadKey = new LoadKey(TenantContext.getTenant(), name, key);
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(loadKey, pending);
+        if (existing != null) {
+            collapsedCounter(name).increment();
+            return await(loadKey, existing);
+        }
+
+        try {
+            T result = loader.get();
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            pending.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(loadKey, pending);
+        }
+    }
+
+    /**
+     * Waits for a load started by another caller and unwraps its outcome.
+     *
+     * @param loadKey The key of the load being waited on
+     * @param future The future completed by the leading caller
+     * @return The loaded value
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T await(LoadKey loadKey, CompletableFuture<Object> future) {
+        try {
+            return (T) future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new LoadTimeoutException("Timed out waiting for " + loadKey.name() + " " + loadKey.key());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException("Interrupted while waiting for " + loadKey.name() + " " + loadKey.key());
+        } catch (ExecutionException ex) {
+            // Hand the leader's exception to every waiter so they fail the same way
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns the counter of loads collapsed into an in-flight load of the given kind.
+     *
+     * @param name The kind of load
+     * @return The counter for that kind
+     */
+    private Counter collapsedCounter(String name) {
+        return Counter.builder("blog.coalescing.collapsed")
+                .description("Loads served by joining an identical in-flight load")
+                .tag("load", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Identifies a load by the tenant it runs for, its kind and its key.
+     */
+    private record LoadKey(String tenant, String name, Object key) {
+    }
+}
@@ -0,0 +1,448 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.model.ArticleContentConverter;
+import com.nathan.blogmanagementapi.repository.ArticleArchiveStore;
+import com.nathan.blogmanagementapi.repository.ArticleRepository;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Service class for writing article and comment lists as JSON.
+ * Rows are written from the JDBC result into a Jackson generator as they are read, instead of
+ * being collected into DTO lists that the ObjectMapper then serializes by reflection.
+ * The output has the same shape as a list of ArticleDto.Response or CommentDto.Response.
+ */
+@Service
+public class StreamingListService {
+
+    private static final String SELECT_ARTICLES =
+            "select a.id, a.title, a.content, a.created_at, a.updated_at, a.version, " +
+            "(select string_agg(t.tag, ',' order by t.tag) from article_tags t where t.article_id = a.id), " +
+            "(select count(*) from comments c where c.article_id = a.id) " +
+            "from articles a where a.tenant_id = ? and a.id > ? order by a.id limit ?";
+
+    private static final String SELECT_COMMENTS =
+            "select id, content, parent_id, depth, reply_count, created_at " +
+            "from comments where article_id = ? and tenant_id = ? order by id";
+
+    // Field names, quoted and encoded once instead of for every row
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString TAGS = new SerializedString("tags");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString COMMENT_COUNT = new SerializedString("commentCount");
+    private static final SerializedString ARTICLE_ID = new SerializedString("articleId");
+    private static final SerializedString PARENT_ID = new SerializedString("parentId");
+    private static final SerializedString DEPTH = new SerializedString("depth");
+    private static final SerializedString REPLY_COUNT = new SerializedString("replyCount");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ArticleRepository articleRepository;
+    private final ArticleArchiveStore articleArchiveStore;
+    private final ArticleIdFilter articleIdFilter;
+    private final RequestCoalescer requestCoalescer;
+
+    /**
+     * Articles read per query when streaming the article list.
+     */
+    private final int pageSize;
+
+    public StreamingListService(JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                ArticleRepository articleRepository,
+                                ArticleArchiveStore articleArchiveStore,
+                                ArticleIdFilter articleIdFilter,
+                                RequestCoalescer requestCoalescer,
+                                @Value("${blog.list.page-size:200}") int pageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.articleRepository = articleRepository;
+        this.articleArchiveStore = articleArchiveStore;
+        this.articleIdFilter = articleIdFilter;
+        this.requestCoalescer = requestCoalescer;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Prepares the list of all articles of the current tenant for streaming, ordered by ID.
+     * Comment counts and tags are computed in the same query. Archived articles are not included.
+     * The articles are read in pages of blog.list.page-size, each in its own short query, and
+     * written to the client as they are read, so no more than a page is held in memory and
+     * a slow client holds a database connection for no longer than it takes to receive a page.
+     * An article changed while the list is being written appears as it was when its page was read.
+     * The writer may run on another thread, so it carries the current tenant along.
+     *
+     * @return Writer that streams the articles as a JSON array
+     */
+    public ListWriter openArticles() {
+        String tenant = TenantContext.getTenant();
+        return output -> TenantContext.runAs(tenant, () -> writeArticles(output, tenant));
+    }
+
+    /**
+     * Renders all comments of an article as a JSON array, ordered by ID.
+     * Concurrent requests for the same article share a single in-flight render.
+     * Comments of archived articles are read from the archive.
+     *
+     * @param articleId The ID of the article
+     * @return The comments as UTF-8 JSON
+     * @throws ResourceNotFoundException if article is not found
+     */
+    public byte[] renderComments(Long articleId) {
+        articleIdFilter.checkArticle(articleId);
+        return requestCoalescer.load("comments", articleId, () -> {
+            // Verify article exists, falling back to the archive for cold articles
+            if (!articleRepository.existsById(articleId)) {
+                return articleArchiveStore.find(articleId)
+                        .map(archived -> toJson(archived.getComments()))
+                        .orElseThrow(() -> new ResourceNotFoundException("Article not found with id: " + articleId));
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            writeRows(output, statement(SELECT_COMMENTS, articleId, TenantContext.getTenant()),
+                    (writer, row) -> writer.writeComment(row, articleId));
+            return output.toByteArray();
+        });
+    }
+
+    /**
+     * Writes the articles of a tenant as a JSON array, page by page. Rows go straight into the
+     * generator while their page's query runs, and the output is flushed after every page.
+     * Pages continue after the last ID written, so rows deleted in between do not shift them.
+     */
+    private void writeArticles(OutputStream output, String tenant) {
+        // The response stream belongs to the caller, so closing the generator leaves it open
+        try (JsonRowWriter writer = new JsonRowWriter(objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET))) {
+            writer.generator.writeStartArray();
+            long lastId = 0;
+            int rows;
+            do {
+                ArticlePage read = jdbcTemplate.query(statement(SELECT_ARTICLES, tenant, lastId, pageSize), (ResultSet row) -> {
+                    ArticlePage result = new ArticlePage();
+                    while (row.next()) {
+                        try {
+                            writer.writeArticle(row);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        result.lastId = row.getLong(1);
+                        result.rows++;
+                    }
+                    return result;
+                });
+                rows = read.rows;
+                lastId = read.lastId;
+                writer.generator.flush();
+            } while (rows == pageSize);
+            writer.generator.writeEndArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Runs the query and writes each row as one element of a JSON array.
+     */
+    private void writeRows(OutputStream output, PreparedStatementCreator statement, RowWriter rowWriter) {
+        try (JsonRowWriter writer = new JsonRowWriter(objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8))) {
+            writer.generator.writeStartArray();
+            jdbcTemplate.query(statement, (ResultSet row) -> {
+                try {
+                    rowWriter.write(writer, row);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.generator.writeEndArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static PreparedStatementCreator statement(String sql, Object... parameters) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement;
+        };
+    }
+
+    /**
+     * Number of rows and last ID of a page of the article list.
+     */
+    private static final class ArticlePage {
+        private int rows;
+        private long lastId;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(JsonRowWriter writer, ResultSet row) throws SQLException, IOException;
+    }
+
+    /**
+     * Writes rows of one result to a JSON generator, reusing its buffers from row to row.
+     * Text columns are read as the UTF-8 bytes received from PostgreSQL and written without
+     * being decoded into strings.
+     */
+    private static final class JsonRowWriter implements Closeable {
+
+        private final JsonGenerator generator;
+        private final TimestampFormat timestampFormat = new TimestampFormat();
+
+        /**
+         * Inflater and output buffer for compressed content, created on first use.
+         */
+        private Inflater inflater;
+        private byte[] inflated;
+
+        JsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        void writeArticle(ResultSet row) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeNumber(row.getLong(1));
+            generator.writeFieldName(TITLE);
+            writeText(row.getBytes(2));
+            generator.writeFieldName(CONTENT);
+            writeContent(row.getBytes(3));
+            generator.writeFieldName(CREATED_AT);
+            writeTimestamp(row.getObject(4, LocalDateTime.class));
+            generator.writeFieldName(UPDATED_AT);
+            writeTimestamp(row.getObject(5, LocalDateTime.class));
+            generator.writeFieldName(TAGS);
+            writeTags(row.getBytes(7));
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(row.getLong(6));
+            generator.writeFieldName(COMMENT_COUNT);
+            generator.writeNumber(row.getInt(8));
+            generator.writeEndObject();
+        }
+
+        void writeComment(ResultSet row, long articleId) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeNumber(row.getLong(1));
+            generator.writeFieldName(CONTENT);
+            writeText(row.getBytes(2));
+            generator.writeFieldName(ARTICLE_ID);
+            generator.writeNumber(articleId);
+            generator.writeFieldName(PARENT_ID);
+            long parentId = row.getLong(3);
+            if (row.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(parentId);
+            }
+            generator.writeFieldName(DEPTH);
+            generator.writeNumber(row.getInt(4));
+            generator.writeFieldName(REPLY_COUNT);
+            generator.writeNumber(row.getInt(5));
+            generator.writeFieldName(CREATED_AT);
+            writeTimestamp(row.getObject(6, LocalDateTime.class));
+            generator.writeEndObject();
+        }
+
+        private void writeText(byte[] utf8) throws IOException {
+            if (utf8 == null) {
+                generator.writeNull();
+            } else {
+                generator.writeUTF8String(utf8, 0, utf8.length);
+            }
+        }
+
+        /**
+         * Writes article content, decoding its stored form (see ArticleContentConverter).
+         */
+        private void writeContent(byte[] stored) throws IOException {
+            switch (stored[0]) {
+                case ArticleContentConverter.FORMAT_PLAIN -> generator.writeUTF8String(stored, 1, stored.length - 1);
+                case ArticleContentConverter.FORMAT_DEFLATE -> {
+                    int length = inflate(stored);
+                    generator.writeUTF8String(inflated, 0, length);
+                }
+                default -> throw new IllegalStateException("Unknown article content format: " + stored[0]);
+            }
+        }
+
+        /**
+         * Inflates compressed content into the reused buffer, growing it as needed.
+         *
+         * @return Number of inflated bytes
+         */
+        private int inflate(byte[] stored) {
+            if (inflater == null) {
+                inflater = new Inflater();
+                inflated = new byte[Math.max(8192, stored.length * 3)];
+            } else {
+                inflater.reset();
+            }
+            inflater.setInput(stored, 1, stored.length - 1);
+            try {
+                int length = 0;
+                while (!inflater.finished()) {
+                    if (length == inflated.length) {
+                        inflated = Arrays.copyOf(inflated, inflated.length * 2);
+                    }
+                    int read = inflater.inflate(inflated, length, inflated.length - length);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IllegalStateException("Truncated compressed article content");
+                    }
+                    length += read;
+                }
+                return length;
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("Corrupt compressed article content", ex);
+            }
+        }
+
+        /**
+         * Writes the comma-separated tags of an article as an array.
+         */
+        private void writeTags(byte[] tags) throws IOException {
+            generator.writeStartArray();
+            if (tags != null) {
+                int start = 0;
+                for (int i = 0; i <= tags.length; i++) {
+                    if (i == tags.length || tags[i] == ',') {
+                        generator.writeUTF8String(tags, start, i - start);
+                        start = i + 1;
+                    }
+                }
+            }
+            generator.writeEndArray();
+        }
+
+        private void writeTimestamp(LocalDateTime timestamp) throws IOException {
+            if (timestamp == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(timestampFormat.chars, 0, timestampFormat.format(timestamp));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (inflater != null) {
+                inflater.end();
+            }
+            generator.close();
+        }
+    }
+
+    /**
+     * Formats timestamps exactly like DateTimeFormatter.ISO_LOCAL_DATE_TIME, which Jackson uses
+     * for LocalDateTime, into a reused buffer. The date part is only formatted again when the
+     * day changes from one timestamp to the next.
+     */
+    private static final class TimestampFormat {
+
+        /**
+         * yyyy-MM-ddTHH:mm:ss.nnnnnnnnn
+         */
+        private char[] chars = new char[29];
+
+        /**
+         * Epoch day of the date currently formatted into the buffer.
+         */
+        private long day = Long.MIN_VALUE;
+
+        /**
+         * Formats the timestamp into the buffer.
+         *
+         * @return Number of characters written
+         */
+        int format(LocalDateTime timestamp) {
+            int year = timestamp.getYear();
+            if (year < 0 || year > 9999) {
+                // Signed and five-digit years are rare enough to leave to the JDK
+                String formatted = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp);
+                chars = Arrays.copyOf(formatted.toCharArray(), Math.max(29, formatted.length()));
+                day = Long.MIN_VALUE;
+                return formatted.length();
+            }
+
+            long epochDay = timestamp.toLocalDate().toEpochDay();
+            if (epochDay != day) {
+                digits(year, 0, 4);
+                chars[4] = '-';
+                digits(timestamp.getMonthValue(), 5, 2);
+                chars[7] = '-';
+                digits(timestamp.getDayOfMonth(), 8, 2);
+                chars[10] = 'T';
+                day = epochDay;
+            }
+            digits(timestamp.getHour(), 11, 2);
+            chars[13] = ':';
+            digits(timestamp.getMinute(), 14, 2);
+            chars[16] = ':';
+            digits(timestamp.getSecond(), 17, 2);
+
+            int nano = timestamp.getNano();
+            if (nano == 0) {
+                return 19;
+            }
+            chars[19] = '.';
+            digits(nano, 20, 9);
+            int length = 29;
+            while (chars[length - 1] == '0') {
+                length--;
+            }
+            return length;
+        }
+
+        private void digits(int value, int offset, int width) {
+            for (int i = offset + width - 1; i >= offset; i--) {
+                chars[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    /**
+     * Writes a JSON list to an output stream.
+     */
+    @FunctionalInterface
+    public interface ListWriter {
+        void writeTo(OutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,402 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.TenantDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.exception.TenantUnavailableException;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.ShardingProperties;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantFence;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Service class for tenant administration.
+ * Moves tenants between shards while they stay online: the tenant's articles, tags and
+ * comments are copied from a consistent snapshot of the source shard while reads and writes
+ * continue, and the changes made in the meantime are then caught up by comparing article
+ * versions and comment reply counts. Only the last catch-up runs with the old shard fenced
+ * (see TenantFence), which holds back the tenant's requests on every instance; after it the
+ * directory points the tenant at the new shard, requests resume there, and the rows on the
+ * old shard are deleted. Rows keep their IDs, which are unique across shards, so the
+ * in-memory indexes stay valid.
+ */
+@Slf4j
+@Service
+public class TenantService {
+
+    private static final String ARTICLE_COLUMNS = "id, tenant_id, title, content, created_at, updated_at, version";
+
+    private static final String COMMENT_COLUMNS = "id, tenant_id, article_id, content, created_at, parent_id, path, depth, reply_count";
+
+    private static final String SELECT_ARTICLES =
+            "select " + ARTICLE_COLUMNS + " from articles where tenant_id = ? and id > ? order by id limit ?";
+
+    private static final String SELECT_ARTICLES_BY_IDS =
+            "select " + ARTICLE_COLUMNS + " from articles where id = any(?)";
+
+    private static final String UPSERT_ARTICLE =
+            "insert into articles (" + ARTICLE_COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?) on conflict (id) do update set " +
+                    "title = excluded.title, content = excluded.content, updated_at = excluded.updated_at, version = excluded.version";
+
+    private static final String SELECT_ARTICLE_VERSIONS = "select id, version from articles where tenant_id = ?";
+
+    private static final String DELETE_ARTICLES = "delete from articles where id = any(?)";
+
+    private static final String SELECT_TAGS = "select article_id, tag from article_tags where article_id = any(?)";
+
+    private static final String INSERT_TAG = "insert into article_tags (article_id, tag) values (?, ?)";
+
+    private static final String DELETE_TAGS = "delete from article_tags where article_id = any(?)";
+
+    private static final String SELECT_COMMENTS =
+            "select " + COMMENT_COLUMNS + " from comments where tenant_id = ? and id > ? order by id limit ?";
+
+    private static final String SELECT_COMMENTS_BY_IDS =
+            "select " + COMMENT_COLUMNS + " from comments where id = any(?)";
+
+    private static final String INSERT_COMMENT =
+            "insert into comments (" + COMMENT_COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_REPLY_COUNTS = "select id, reply_count from comments where tenant_id = ?";
+
+    private static final String UPDATE_REPLY_COUNT = "update comments set reply_count = ? where id = ?";
+
+    private static final String DELETE_COMMENTS = "delete from comments where id = any(?)";
+
+    private static final String DELETE_TENANT_TAGS =
+            "delete from article_tags t using articles a where a.id = t.article_id and a.tenant_id = ?";
+
+    private static final String DELETE_TENANT_COMMENTS = "delete from comments where tenant_id = ?";
+
+    private static final String DELETE_TENANT_ARTICLES = "delete from articles where tenant_id = ?";
+
+    private static final String DELETE_FENCE = "delete from tenant_fences where tenant_id = ?";
+
+    /**
+     * First key of the tenant move advisory locks, separating them from other advisory locks.
+     */
+    private static final int MOVE_LOCK_NAMESPACE = 0x6d6f7665;
+
+    private static final String TRY_LOCK_MOVE = "select pg_try_advisory_xact_lock(" + MOVE_LOCK_NAMESPACE + ", hashtext(?))";
+
+    private final Shards shards;
+    private final ShardDirectory shardDirectory;
+    private final TenantFence tenantFence;
+    private final int batchSize;
+
+    public TenantService(Shards shards,
+                         ShardDirectory shardDirectory,
+                         TenantFence tenantFence,
+                         ShardingProperties shardingProperties) {
+        this.shards = shards;
+        this.shardDirectory = shardDirectory;
+        this.tenantFence = tenantFence;
+        this.batchSize = shardingProperties.getMoveBatchSize();
+    }
+
+    /**
+     * Retrieves all known tenants with their shards.
+     *
+     * @return Tenants in alphabetical order
+     */
+    public List<TenantDto.Response> getTenants() {
+        return shardDirectory.getTenants().entrySet().stream()
+                .map(entry -> new TenantDto.Response(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Creates a tenant. Until it is created, requests naming the tenant are rejected.
+     *
+     * @param request The tenant ID and, optionally, the shard to create the tenant on
+     * @return The created tenant with its shard
+     * @throws BadRequestException if the shard is unknown or the tenant already exists
+     */
+    public TenantDto.Response createTenant(TenantDto.Request request) {
+        if (request.getShard() != null && !shards.contains(request.getShard())) {
+            throw new BadRequestException("Unknown shard: " + request.getShard());
+        }
+        String shard = shardDirectory.create(request.getTenantId(), request.getShard());
+        if (shard == null) {
+            throw new BadRequestException("Tenant already exists: " + request.getTenantId());
+        }
+        return new TenantDto.Response(request.getTenantId(), shard);
+    }
+
+    /**
+     * Moves a tenant to another shard while it stays online.
+     * Requests of the tenant are held back only for the final catch-up and the switch.
+     *
+     * @param tenant The tenant to move
+     * @param targetShard The shard to move the tenant to
+     * @return Row counts and timings of the move
+     * @throws ResourceNotFoundException if the tenant is not known
+     * @throws BadRequestException if the shard is unknown, already holds the tenant, or the tenant is being moved
+     * @throws TenantUnavailableException if the tenant's connections are not returned within the move write timeout
+     */
+    public TenantDto.MoveResponse moveTenant(String tenant, String targetShard) {
+        if (!shards.contains(targetShard)) {
+            throw new BadRequestException("Unknown shard: " + targetShard);
+        }
+        // The lock is held by a transaction on a connection of its own for the whole move, so only
+        // one instance moves the tenant at a time. The connection is not bound to the thread, so
+        // every step of the move commits on its own, also when a shard is the primary shard.
+        try (Connection lock = shards.getDataSource(shards.getPrimary()).getConnection()) {
+            lock.setAutoCommit(false);
+            try {
+                if (!tryLockMove(lock, tenant)) {
+                    throw new BadRequestException("Tenant " + tenant + " is already being moved");
+                }
+                String sourceShard = shardDirectory.reload(tenant);
+                if (sourceShard.equals(targetShard)) {
+                    throw new BadRequestException("Tenant " + tenant + " already lives on shard " + targetShard);
+                }
+                return move(tenant, sourceShard, targetShard);
+            } finally {
+                // Releases the lock
+                lock.rollback();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to lock tenant " + tenant + " for a move", ex);
+        }
+    }
+
+    private TenantDto.MoveResponse move(String tenant, String sourceShard, String targetShard) {
+        long started = System.nanoTime();
+        Shard source = new Shard(shards.getDataSource(sourceShard));
+        Shard target = new Shard(shards.getDataSource(targetShard));
+        TenantDto.MoveResponse response = new TenantDto.MoveResponse();
+        response.setTenantId(tenant);
+        response.setFromShard(sourceShard);
+        response.setToShard(targetShard);
+
+        // Rows left on the target by an earlier, failed move are not owned by anyone
+        target.transaction.executeWithoutResult(status -> deleteTenant(target, tenant));
+        copy(tenant, source, target, response);
+        long synchronizedRows = synchronize(tenant, source, target);
+
+        long paused = System.nanoTime();
+        Connection fenced;
+        try {
+            fenced = tenantFence.close(tenant, sourceShard, targetShard);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to fence tenant " + tenant + " on shard " + sourceShard, ex);
+        }
+        boolean moved = false;
+        try {
+            synchronizedRows += synchronize(tenant, source, target);
+            // A fence left on the target by an earlier move away from it no longer applies
+            target.jdbcTemplate.update(DELETE_FENCE, tenant);
+            shardDirectory.reassign(tenant, targetShard);
+            moved = true;
+        } finally {
+            tenantFence.open(fenced, tenant, sourceShard, moved);
+        }
+        response.setWritePauseMillis((System.nanoTime() - paused) / 1_000_000);
+        response.setRowsSynchronized(synchronizedRows);
+
+        // No instance uses the source shard for the tenant anymore: connections made before the
+        // fence have been returned, and connections made after it are sent to the target
+        try {
+            source.transaction.executeWithoutResult(status -> deleteTenant(source, tenant));
+        } catch (RuntimeException ex) {
+            // The rows are ignored, since the directory no longer places the tenant there
+            log.warn("Moved tenant {} but failed to delete its rows from shard {}", tenant, sourceShard, ex);
+        }
+
+        response.setDurationMillis((System.nanoTime() - started) / 1_000_000);
+        log.info("Moved tenant {} from shard {} to {}: {} articles, {} comments, {} rows synchronized, tenant paused for {} ms",
+                tenant, sourceShard, targetShard, response.getArticlesCopied(), response.getCommentsCopied(),
+                synchronizedRows, response.getWritePauseMillis());
+        return response;
+    }
+
+    /**
+     * Copies the tenant's rows from one snapshot of the source shard, in batches of ascending IDs.
+     * Every batch is written to the target in its own transaction.
+     */
+    private void copy(String tenant, Shard source, Shard target, TenantDto.MoveResponse response) {
+        source.snapshot.executeWithoutResult(status -> {
+            response.setArticlesCopied(copyBatches(SELECT_ARTICLES, tenant, source, target, rows -> {
+                target.jdbcTemplate.batchUpdate(UPSERT_ARTICLE, rows);
+                copyTags(ids(rows), source, target);
+            }));
+            response.setCommentsCopied(copyBatches(SELECT_COMMENTS, tenant, source, target,
+                    rows -> target.jdbcTemplate.batchUpdate(INSERT_COMMENT, rows)));
+        });
+    }
+
+    private long copyBatches(String select, String tenant, Shard source, Shard target, Consumer<List<Object[]>> write) {
+        long copied = 0;
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            rows = source.jdbcTemplate.query(select, TenantService::row, tenant, lastId, batchSize);
+            if (!rows.isEmpty()) {
+                List<Object[]> batch = rows;
+                target.transaction.executeWithoutResult(status -> write.accept(batch));
+                copied += rows.size();
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } while (rows.size() == batchSize);
+        return copied;
+    }
+
+    /**
+     * Brings the target up to date with the source: articles whose version differs are copied
+     * again with their tags, new comments are copied, reply counts are updated, and articles and
+     * comments deleted from the source are deleted from the target. The source is read from one
+     * snapshot and the target is written in one transaction.
+     *
+     * @return Number of articles and comments written or deleted
+     */
+    private long synchronize(String tenant, Shard source, Shard target) {
+        Long changes = source.snapshot.execute(sourceStatus -> target.transaction.execute(targetStatus -> {
+            Map<Long, Long> sourceVersions = values(source, SELECT_ARTICLE_VERSIONS, tenant);
+            Map<Long, Long> targetVersions = values(target, SELECT_ARTICLE_VERSIONS, tenant);
+            Map<Long, Long> sourceReplyCounts = values(source, SELECT_REPLY_COUNTS, tenant);
+            Map<Long, Long> targetReplyCounts = values(target, SELECT_REPLY_COUNTS, tenant);
+
+            List<Long> changedArticles = new ArrayList<>();
+            sourceVersions.forEach((id, version) -> {
+                if (!version.equals(targetVersions.get(id))) {
+                    changedArticles.add(id);
+                }
+            });
+            List<Long> removedArticles = missingFrom(sourceVersions, targetVersions);
+            List<Long> newComments = missingFrom(targetReplyCounts, sourceReplyCounts);
+            List<Long> removedComments = missingFrom(sourceReplyCounts, targetReplyCounts);
+            List<Object[]> replyCountUpdates = new ArrayList<>();
+            sourceReplyCounts.forEach((id, count) -> {
+                Long copied = targetReplyCounts.get(id);
+                if (copied != null && !copied.equals(count)) {
+                    replyCountUpdates.add(new Object[]{count, id});
+                }
+            });
+
+            for (List<Long> ids : batches(changedArticles)) {
+                target.jdbcTemplate.batchUpdate(UPSERT_ARTICLE, source.jdbcTemplate.query(SELECT_ARTICLES_BY_IDS, idArray(ids), TenantService::row));
+                target.jdbcTemplate.update(DELETE_TAGS, idArray(ids));
+                copyTags(ids, source, target);
+            }
+            for (List<Long> ids : batches(newComments)) {
+                target.jdbcTemplate.batchUpdate(INSERT_COMMENT, source.jdbcTemplate.query(SELECT_COMMENTS_BY_IDS, idArray(ids), TenantService::row));
+            }
+            target.jdbcTemplate.batchUpdate(UPDATE_REPLY_COUNT, replyCountUpdates);
+            for (List<Long> ids : batches(removedComments)) {
+                target.jdbcTemplate.update(DELETE_COMMENTS, idArray(ids));
+            }
+            for (List<Long> ids : batches(removedArticles)) {
+                target.jdbcTemplate.update(DELETE_TAGS, idArray(ids));
+                target.jdbcTemplate.update(DELETE_ARTICLES, idArray(ids));
+            }
+            return (long) changedArticles.size() + removedArticles.size() + newComments.size()
+                    + removedComments.size() + replyCountUpdates.size();
+        }));
+        return changes != null ? changes : 0;
+    }
+
+    private void copyTags(List<Long> articleIds, Shard source, Shard target) {
+        List<Object[]> tags = source.jdbcTemplate.query(SELECT_TAGS, idArray(articleIds), TenantService::row);
+        target.jdbcTemplate.batchUpdate(INSERT_TAG, tags);
+    }
+
+    private static boolean tryLockMove(Connection connection, String tenant) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_MOVE)) {
+            statement.setString(1, tenant);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void deleteTenant(Shard shard, String tenant) {
+        shard.jdbcTemplate.update(DELETE_TENANT_TAGS, tenant);
+        shard.jdbcTemplate.update(DELETE_TENANT_COMMENTS, tenant);
+        shard.jdbcTemplate.update(DELETE_TENANT_ARTICLES, tenant);
+    }
+
+    /**
+     * Reads pairs of ID and number, such as article versions, into a map.
+     */
+    private static Map<Long, Long> values(Shard shard, String select, String tenant) {
+        Map<Long, Long> values = new HashMap<>();
+        shard.jdbcTemplate.query(select, rs -> {
+            values.put(rs.getLong(1), rs.getLong(2));
+        }, tenant);
+        return values;
+    }
+
+    private static List<Long> missingFrom(Map<Long, Long> reference, Map<Long, Long> candidates) {
+        return candidates.keySet().stream().filter(id -> !reference.containsKey(id)).toList();
+    }
+
+    private List<List<Long>> batches(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            batches.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    private static List<Long> ids(List<Object[]> rows) {
+        return rows.stream().map(row -> (Long) row[0]).toList();
+    }
+
+    private static PreparedStatementSetter idArray(Collection<Long> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+    }
+
+    private static Object[] row(ResultSet rs, int rowNum) throws SQLException {
+        Object[] row = new Object[rs.getMetaData().getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+
+    /**
+     * Direct access to one shard, bypassing the tenant routing.
+     * Its transactions never join one already open on the shard, so each of them commits when it ends.
+     */
+    private static final class Shard {
+        final JdbcTemplate jdbcTemplate;
+
+        /**
+         * Read-only transaction that sees one snapshot of the shard.
+         */
+        final TransactionTemplate snapshot;
+
+        final TransactionTemplate transaction;
+
+        Shard(DataSource dataSource) {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transaction = new TransactionTemplate(transactionManager);
+            this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.snapshot = new TransactionTemplate(transactionManager);
+            this.snapshot.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.snapshot.setReadOnly(true);
+            this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        }
+    }
+}
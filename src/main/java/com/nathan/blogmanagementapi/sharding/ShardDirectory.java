@@ -0,0 +1,191 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directory of the shard each tenant lives on.
+ * The assignments are stored in the tenant_shards table of the primary shard and cached
+ * in memory. Tenants are created explicitly by an administrator, either on a given shard or on
+ * the shard picked by the hash of their name (the default tenant is registered on the primary
+ * shard, where the data from before sharding is), and keep that shard until they are moved.
+ * Other instances learn about a new tenant with their next refresh.
+ */
+@Slf4j
+@Component
+public class ShardDirectory {
+
+    private static final String SELECT_ALL = "select tenant_id, shard from tenant_shards";
+
+    private static final String SELECT_SHARD = "select shard from tenant_shards where tenant_id = ?";
+
+    private static final String INSERT_TENANT =
+            "insert into tenant_shards (tenant_id, shard, assigned_at) values (?, ?, ?) on conflict (tenant_id) do nothing";
+
+    private static final String UPDATE_TENANT =
+            "update tenant_shards set shard = ?, assigned_at = ? where tenant_id = ?";
+
+    private final Shards shards;
+
+    /**
+     * Queries the directory table on the primary shard, bypassing the routing data source.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Shard of every known tenant. Only replaced wholesale under the lock of this directory.
+     */
+    private final Map<String, String> shardByTenant = new ConcurrentHashMap<>();
+
+    public ShardDirectory(Shards shards) {
+        this.shards = shards;
+        this.jdbcTemplate = new JdbcTemplate(shards.getDataSource(shards.getPrimary()));
+    }
+
+    /**
+     * Reloads the assignments, picking up moves made by other instances,
+     * and makes sure the default tenant is registered.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${blog.sharding.directory-refresh-interval:10s}",
+            initialDelayString = "${blog.sharding.directory-refresh-interval:10s}")
+    public synchronized void refresh() {
+        Map<String, String> loaded = new HashMap<>();
+        jdbcTemplate.query(SELECT_ALL, rs -> {
+            loaded.put(rs.getString(1), rs.getString(2));
+        });
+        if (!loaded.containsKey(TenantContext.DEFAULT_TENANT)) {
+            jdbcTemplate.update(INSERT_TENANT, TenantContext.DEFAULT_TENANT, shards.getPrimary(),
+                    Timestamp.valueOf(LocalDateTime.now()));
+            // Another instance may have registered the default tenant first
+            loaded.put(TenantContext.DEFAULT_TENANT,
+                    jdbcTemplate.queryForObject(SELECT_SHARD, String.class, TenantContext.DEFAULT_TENANT));
+        }
+        shardByTenant.putAll(loaded);
+    }
+
+    /**
+     * Checks whether a tenant is known. Only consults the in-memory directory.
+     *
+     * @param tenant The tenant
+     * @return true if the tenant has been created
+     */
+    public boolean contains(String tenant) {
+        return shardByTenant.containsKey(tenant);
+    }
+
+    /**
+     * Returns the shard of a tenant.
+     *
+     * @param tenant The tenant
+     * @return The name of the tenant's shard
+     * @throws ResourceNotFoundException if the tenant is not known
+     */
+    public String shardOf(String tenant) {
+        String shard = shardByTenant.get(tenant);
+        if (shard == null) {
+            throw new ResourceNotFoundException("Tenant not found: " + tenant);
+        }
+        return shard;
+    }
+
+    /**
+     * Reloads the shard of one tenant from the directory table, such as after finding
+     * the tenant fenced off its cached shard by a move of another instance.
+     *
+     * @param tenant The tenant
+     * @return The name of the tenant's shard
+     * @throws ResourceNotFoundException if the tenant is not known
+     */
+    public String reload(String tenant) {
+        List<String> shard = jdbcTemplate.queryForList(SELECT_SHARD, String.class, tenant);
+        if (shard.isEmpty()) {
+            throw new ResourceNotFoundException("Tenant not found: " + tenant);
+        }
+        shardByTenant.put(tenant, shard.get(0));
+        return shard.get(0);
+    }
+
+    /**
+     * Creates a tenant on a shard.
+     *
+     * @param tenant The new tenant
+     * @param shard The name of the shard, or null to place the tenant by the hash of its name
+     * @return The name of the tenant's shard, or null if the tenant already exists
+     */
+    public synchronized String create(String tenant, String shard) {
+        String placement = shard != null ? shard : place(tenant);
+        // Another instance may have created the tenant since the last refresh
+        if (jdbcTemplate.update(INSERT_TENANT, tenant, placement, Timestamp.valueOf(LocalDateTime.now())) == 0) {
+            return null;
+        }
+        shardByTenant.put(tenant, placement);
+        log.info("Tenant {} created on shard {}", tenant, placement);
+        return placement;
+    }
+
+    /**
+     * Returns all known tenants with their shards.
+     *
+     * @return Shard names keyed by tenant, in tenant order
+     */
+    public Map<String, String> getTenants() {
+        return new TreeMap<>(shardByTenant);
+    }
+
+    /**
+     * Returns the tenants assigned to a shard. Rows of other tenants found on the shard,
+     * such as copies left by a tenant move, are to be ignored.
+     *
+     * @param shard The shard name
+     * @return The tenants living on the shard
+     */
+    public Set<String> getTenantsOn(String shard) {
+        Set<String> tenants = new HashSet<>();
+        shardByTenant.forEach((tenant, assigned) -> {
+            if (assigned.equals(shard)) {
+                tenants.add(tenant);
+            }
+        });
+        return tenants;
+    }
+
+    /**
+     * Assigns a tenant to another shard. Requests resolve the tenant's shard when they
+     * acquire a connection; other instances find out through the fence left on the old shard.
+     * Called outside a transaction, so the assignment is committed before the fence is opened
+     * and connections that find the fence reload the new shard.
+     *
+     * @param tenant The tenant
+     * @param shard The name of the new shard
+     */
+    public synchronized void reassign(String tenant, String shard) {
+        jdbcTemplate.update(UPDATE_TENANT, shard, Timestamp.valueOf(LocalDateTime.now()), tenant);
+        shardByTenant.put(tenant, shard);
+        log.info("Tenant {} assigned to shard {}", tenant, shard);
+    }
+
+    /**
+     * Spreads new tenants over the shards by the hash of their name.
+     */
+    private String place(String tenant) {
+        List<String> names = new ArrayList<>(shards.getNames());
+        names.sort(null);
+        return names.get(Math.floorMod(tenant.hashCode(), names.size()));
+    }
+}
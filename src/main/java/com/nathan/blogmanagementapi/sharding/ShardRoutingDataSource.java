@@ -0,0 +1,38 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Data source that hands out connections of the current tenant's shard.
+ * The shard is resolved whenever a connection is acquired, which is once per transaction,
+ * so JPA repositories and JdbcTemplate queries are routed without knowing about shards.
+ * Tenant connections pass the tenant's fence, which keeps them off a shard the tenant
+ * was moved away from; connections of a pinned shard, used by background scans, do not.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final Shards shards;
+    private final TenantFence tenantFence;
+
+    public ShardRoutingDataSource(Shards shards, TenantFence tenantFence) {
+        this.shards = shards;
+        this.tenantFence = tenantFence;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String shard = TenantContext.getShard();
+        return shard != null ? shards.getDataSource(shard).getConnection() : tenantFence.connect(TenantContext.getTenant());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        String shard = TenantContext.getShard();
+        return shard != null
+                ? shards.getDataSource(shard).getConnection(username, password)
+                : tenantFence.connect(TenantContext.getTenant(), dataSource -> dataSource.getConnection(username, password));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the database shards, bound from the blog.sharding properties.
+ * The primary shard is the database configured through spring.datasource; it holds the
+ * tenant directory and all data from before sharding. Further shards are listed by name.
+ */
+@Data
+@ConfigurationProperties(prefix = "blog.sharding")
+public class ShardingProperties {
+
+    /**
+     * Name of the shard formed by the spring.datasource database.
+     */
+    private String primaryShard = "shard-0";
+
+    /**
+     * Additional shards, keyed by shard name.
+     */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /**
+     * How long a write waits while its tenant is being moved before it fails with a 503.
+     */
+    private Duration moveWriteTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Number of rows copied per batch when a tenant is moved.
+     */
+    private int moveBatchSize = 500;
+
+    /**
+     * Maximum number of connections per shard for the requests of tenants.
+     */
+    private int poolSize = 10;
+
+    /**
+     * Maximum number of connections per shard for background scans, tenant moves and the tenant directory.
+     */
+    private int backgroundPoolSize = 4;
+
+    /**
+     * Connection settings of one additional shard.
+     */
+    @Data
+    public static class Shard {
+        /**
+         * Number of the shard, unique and above 0 (the primary shard is 0).
+         * Determines the range new article and comment IDs are taken from, so it must never change.
+         */
+        private int number;
+
+        /**
+         * JDBC URL of the shard database.
+         */
+        private String url;
+
+        /**
+         * Database user; defaults to spring.datasource.username.
+         */
+        private String username;
+
+        /**
+         * Database password; defaults to spring.datasource.password.
+         */
+        private String password;
+    }
+}
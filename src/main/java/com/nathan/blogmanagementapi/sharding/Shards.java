@@ -0,0 +1,110 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The connection pools of all configured shards, keyed by shard name.
+ * Created and migrated by ShardingConfig; application code reaches the shards through
+ * the routing data source and only pins a shard explicitly for background scans.
+ * Each shard has a second pool for the connections of tenants, whose sessions keep tenant
+ * locks between uses (see TenantFence), so pinned connections never hold a tenant's lock.
+ */
+public class Shards implements AutoCloseable {
+
+    /**
+     * Number of low bits of an article or comment ID that are allocated within one shard.
+     * Shard n hands out IDs from n * 2^40 on, so IDs are unique across shards.
+     */
+    public static final int ID_BLOCK_BITS = 40;
+
+    private final String primary;
+    private final Map<String, HikariDataSource> dataSources;
+    private final Map<String, HikariDataSource> tenantDataSources;
+
+    public Shards(String primary, Map<String, HikariDataSource> dataSources, Map<String, HikariDataSource> tenantDataSources) {
+        this.primary = primary;
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+        this.tenantDataSources = Collections.unmodifiableMap(new LinkedHashMap<>(tenantDataSources));
+    }
+
+    /**
+     * Returns the name of the primary shard, which holds the tenant directory.
+     *
+     * @return The primary shard name
+     */
+    public String getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Returns the names of all shards, the primary shard first.
+     *
+     * @return The shard names
+     */
+    public Set<String> getNames() {
+        return dataSources.keySet();
+    }
+
+    /**
+     * Checks whether a shard is configured.
+     *
+     * @param name The shard name
+     * @return true if the shard exists
+     */
+    public boolean contains(String name) {
+        return dataSources.containsKey(name);
+    }
+
+    /**
+     * Returns the connection pool of a shard.
+     *
+     * @param name The shard name
+     * @return The shard's data source
+     * @throws IllegalArgumentException if the shard is not configured
+     */
+    public DataSource getDataSource(String name) {
+        DataSource dataSource = dataSources.get(name);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + name);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Returns the pool of a shard's tenant connections. Only TenantFence connects through it.
+     *
+     * @param name The shard name
+     * @return The shard's tenant data source
+     * @throws IllegalArgumentException if the shard is not configured
+     */
+    public DataSource getTenantDataSource(String name) {
+        DataSource dataSource = tenantDataSources.get(name);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + name);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Returns the ID block an article or comment ID was allocated from, which is the
+     * number of the shard that created the row.
+     *
+     * @param id The ID
+     * @return The number of the allocating shard
+     */
+    public static long idBlock(long id) {
+        return id >>> ID_BLOCK_BITS;
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+        tenantDataSources.values().forEach(HikariDataSource::close);
+    }
+}
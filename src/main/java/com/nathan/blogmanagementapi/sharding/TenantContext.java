@@ -0,0 +1,118 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the tenant the current thread works for, and optionally a shard that overrides
+ * the tenant's shard for background work that scans shards one by one.
+ * Requests get their tenant from TenantFilter; code outside a request works for the
+ * default tenant unless it switches tenants explicitly.
+ */
+public final class TenantContext {
+
+    /**
+     * Tenant of requests without a tenant header, and owner of all data from before sharding.
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    /**
+     * Returns the tenant of the current thread.
+     *
+     * @return The current tenant, or the default tenant when none is set
+     */
+    public static String getTenant() {
+        String tenant = TENANT.get();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    /**
+     * Returns the shard the current thread is pinned to.
+     *
+     * @return The shard name, or null when connections are routed by tenant
+     */
+    public static String getShard() {
+        return SHARD.get();
+    }
+
+    /**
+     * Runs an action for the given tenant, restoring the previous tenant afterwards.
+     *
+     * @param tenant The tenant to work for
+     * @param action The action to run
+     */
+    public static void runAs(String tenant, Runnable action) {
+        callAs(tenant, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an action for the given tenant, restoring the previous tenant afterwards.
+     *
+     * @param tenant The tenant to work for
+     * @param action The action to run
+     * @return The result of the action
+     */
+    public static <T> T callAs(String tenant, Supplier<T> action) {
+        String previous = TENANT.get();
+        TENANT.set(tenant);
+        try {
+            return action.get();
+        } finally {
+            restore(TENANT, previous);
+        }
+    }
+
+    /**
+     * Runs an action with all connections taken from the given shard, whatever the tenant.
+     *
+     * @param shard The name of the shard
+     * @param action The action to run
+     */
+    public static void runOnShard(String shard, Runnable action) {
+        callOnShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an action with all connections taken from the given shard, whatever the tenant.
+     *
+     * @param shard The name of the shard
+     * @param action The action to run
+     * @return The result of the action
+     */
+    public static <T> T callOnShard(String shard, Supplier<T> action) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(SHARD, previous);
+        }
+    }
+
+    static void setTenant(String tenant) {
+        TENANT.set(tenant);
+    }
+
+    static void clearTenant() {
+        TENANT.remove();
+    }
+
+    private static void restore(ThreadLocal<String> holder, String previous) {
+        if (previous != null) {
+            holder.set(previous);
+        } else {
+            holder.remove();
+        }
+    }
+}
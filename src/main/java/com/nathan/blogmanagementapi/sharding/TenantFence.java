@@ -0,0 +1,456 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import com.nathan.blogmanagementapi.exception.TenantUnavailableException;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps every instance off a tenant's old shard once the tenant has been moved.
+ * Each connection used for a tenant holds a shared advisory lock of the tenant on its shard,
+ * and after taking the lock checks the shard's tenant_fences table. A move takes the lock
+ * exclusively on the source shard, which waits for the connections of all instances to be
+ * returned and holds new ones back, and then leaves a fence row naming the new shard.
+ * A connection that finds the fence reloads the tenant's shard from the directory and
+ * connects there instead, so no instance writes to or reads from the old shard after the switch.
+ * Connections waiting for a move poll for the lock without holding a pool connection,
+ * so they do not starve the move or other tenants of the shard.
+ * <p>
+ * A pooled session keeps the lock when its connection is returned, so the fence is checked
+ * once per session and tenant rather than on every checkout: while the session holds the lock
+ * no move can have fenced the shard, and checking the session out for the same tenant again
+ * costs no round trip. A move ends this by queueing for the exclusive lock; every instance polls
+ * for such waiters, closes the idle sessions still holding the lock and releases it from the
+ * others when they are returned. Ending a session always releases its locks, so a session that
+ * dies cannot be used on the old shard either. Tenant connections come from pools of their own
+ * (see Shards), so other users of a shard never keep a tenant's lock.
+ */
+@Slf4j
+@Component
+public class TenantFence {
+
+    /**
+     * First key of the tenant advisory locks, separating them from other advisory locks.
+     */
+    private static final int LOCK_NAMESPACE = 0x74656e74;
+
+    /**
+     * Tries the shared lock and, in a second statement with a fresh snapshot, reads the fence.
+     */
+    private static final String TRY_LOCK_SHARED =
+            "select pg_try_advisory_lock_shared(" + LOCK_NAMESPACE + ", hashtext(?)); " +
+                    "select moved_to from tenant_fences where tenant_id = ?";
+
+    private static final String UNLOCK_SHARED = "select pg_advisory_unlock_shared(" + LOCK_NAMESPACE + ", hashtext(?))";
+
+    /**
+     * Returns those of the given tenants whose lock a move is waiting for on the shard.
+     */
+    private static final String SELECT_AWAITED =
+            "select tenant from unnest(?) tenant where exists (select 1 from pg_locks l " +
+                    "where l.locktype = 'advisory' and l.database = (select oid from pg_database where datname = current_database()) " +
+                    "and l.classid = " + LOCK_NAMESPACE + " and l.objid = hashtext(tenant)::oid and l.objsubid = 2 " +
+                    "and l.mode = 'ExclusiveLock' and not l.granted)";
+
+    private static final String LOCK = "select pg_advisory_lock(" + LOCK_NAMESPACE + ", hashtext(?))";
+
+    private static final String UNLOCK = "select pg_advisory_unlock(" + LOCK_NAMESPACE + ", hashtext(?))";
+
+    private static final String INSERT_FENCE =
+            "insert into tenant_fences (tenant_id, moved_to, moved_at) values (?, ?, ?) " +
+                    "on conflict (tenant_id) do update set moved_to = excluded.moved_to, moved_at = excluded.moved_at";
+
+    private static final String DELETE_FENCE = "delete from tenant_fences where tenant_id = ?";
+
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    /**
+     * Tenant locks held by the current thread, as "tenant@shard". A thread that already holds
+     * the lock, such as a request holding its session's connection, takes further connections
+     * of the tenant without queueing behind a waiting move, which would wait for it in turn.
+     */
+    private static final ThreadLocal<Set<String>> HELD = ThreadLocal.withInitial(HashSet::new);
+
+    private final Shards shards;
+    private final ShardDirectory shardDirectory;
+    private final long timeoutNanos;
+
+    /**
+     * Tenant lock kept by each database session, keyed by the driver's connection of the session.
+     */
+    private final Map<Connection, Holder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * Locks a move is waiting for, as "tenant@shard", as of the last poll.
+     */
+    private final Set<String> awaited = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Polls for moves waiting for locks held by this instance. Runs on a thread of its own,
+     * so long scheduled jobs do not hold moves back.
+     */
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tenant-fence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long pollIntervalMillis;
+
+    public TenantFence(Shards shards,
+                       ShardDirectory shardDirectory,
+                       ShardingProperties shardingProperties,
+                       @Value("${blog.sharding.fence-poll-interval:100ms}") Duration pollInterval) {
+        this.shards = shards;
+        this.shardDirectory = shardDirectory;
+        this.timeoutNanos = shardingProperties.getMoveWriteTimeout().toNanos();
+        this.pollIntervalMillis = pollInterval.toMillis();
+    }
+
+    @PostConstruct
+    void startPolling() {
+        poller.scheduleWithFixedDelay(this::releaseAwaitedLocks, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopPolling() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Opens a connection to the shard of a tenant, holding the tenant's shared lock until it is closed.
+     *
+     * @param tenant The tenant
+     * @return A connection to the tenant's current shard
+     * @throws TenantUnavailableException if the tenant is being moved for longer than the move write timeout
+     */
+    public Connection connect(String tenant) throws SQLException {
+        return connect(tenant, DataSource::getConnection);
+    }
+
+    /**
+     * Opens a connection to the shard of a tenant like {@link #connect(String)}.
+     *
+     * @param tenant The tenant
+     * @param opener Opens a connection of the tenant's shard, such as with other credentials
+     * @return A connection to the tenant's current shard
+     * @throws TenantUnavailableException if the tenant is being moved for longer than the move write timeout
+     */
+    public Connection connect(String tenant, Opener opener) throws SQLException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        String shard = shardDirectory.shardOf(tenant);
+        while (true) {
+            String key = tenant + "@" + shard;
+            DataSource dataSource = shards.getTenantDataSource(shard);
+            if (HELD.get().contains(key)) {
+                return opener.open(dataSource);
+            }
+
+            Connection connection = opener.open(dataSource);
+            Connection session;
+            String movedTo;
+            try {
+                session = connection.unwrap(Connection.class);
+                Holder holder = holders.remove(session);
+                if (holder != null && holder.tenant().equals(tenant) && !awaited.contains(key)) {
+                    // The session kept the lock since its last use, so no move can have fenced the shard
+                    return guard(connection, session, dataSource, tenant, key);
+                }
+                movedTo = tryLockShared(connection, tenant, holder != null ? holder.tenant() : null);
+            } catch (SQLException | RuntimeException ex) {
+                evict(dataSource, connection);
+                throw ex;
+            }
+
+            if (movedTo == null) {
+                connection.close();
+                if (System.nanoTime() > deadline) {
+                    throw new TenantUnavailableException("Tenant " + tenant + " is being moved to another shard; retry later");
+                }
+                pause();
+            } else if (movedTo.isEmpty()) {
+                return guard(connection, session, dataSource, tenant, key);
+            } else {
+                String current = shardDirectory.reload(tenant);
+                if (current.equals(shard)) {
+                    // The move died before switching the tenant over, and no move holds the lock
+                    try (PreparedStatement statement = connection.prepareStatement(DELETE_FENCE)) {
+                        statement.setString(1, tenant);
+                        statement.executeUpdate();
+                    } catch (SQLException ex) {
+                        release(connection, dataSource, tenant);
+                        throw ex;
+                    }
+                    log.warn("Removed the fence of tenant {} left on shard {} by a failed move", tenant, shard);
+                    return guard(connection, session, dataSource, tenant, key);
+                }
+                release(connection, dataSource, tenant);
+                shard = current;
+            }
+        }
+    }
+
+    /**
+     * Closes a tenant's old shard for a move: waits until no instance holds a connection of the
+     * tenant on the shard, then fences it. Until the returned connection is passed to
+     * {@link #open}, the tenant's connections to the shard wait.
+     *
+     * @param tenant The tenant being moved
+     * @param shard The shard the tenant is moved from
+     * @param targetShard The shard the tenant is moved to
+     * @return The connection holding the tenant's exclusive lock on the shard
+     * @throws TenantUnavailableException if the tenant's connections are not returned within the move write timeout
+     */
+    public Connection close(String tenant, String shard, String targetShard) throws SQLException {
+        DataSource dataSource = shards.getDataSource(shard);
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(LOCK)) {
+            statement.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeoutNanos)));
+            statement.setString(1, tenant);
+            statement.execute();
+        } catch (SQLException ex) {
+            // A cancelled wait may still have been granted the lock, which ends with the session
+            evict(dataSource, connection);
+            if ("57014".equals(ex.getSQLState())) {
+                throw new TenantUnavailableException("Timed out waiting for the connections of tenant " + tenant + " on shard " + shard);
+            }
+            throw ex;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_FENCE)) {
+            statement.setString(1, tenant);
+            statement.setString(2, targetShard);
+            statement.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            evict(dataSource, connection);
+            throw ex;
+        }
+        return connection;
+    }
+
+    /**
+     * Opens a tenant's old shard again after {@link #close}. If the tenant was not switched over,
+     * the fence is removed first, so the tenant's connections continue on the shard.
+     *
+     * @param connection The connection returned by close
+     * @param tenant The tenant being moved
+     * @param shard The shard the tenant is moved from
+     * @param moved true if the directory now points the tenant at the new shard
+     */
+    public void open(Connection connection, String tenant, String shard, boolean moved) {
+        DataSource dataSource = shards.getDataSource(shard);
+        try {
+            if (!moved) {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_FENCE)) {
+                    statement.setString(1, tenant);
+                    statement.executeUpdate();
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(UNLOCK)) {
+                statement.setString(1, tenant);
+                statement.execute();
+            }
+            connection.close();
+        } catch (SQLException ex) {
+            // Ending the session releases the lock; a fence left behind is removed by the next connection
+            log.warn("Failed to open shard {} for tenant {} again; discarding the connection", shard, tenant, ex);
+            evict(dataSource, connection);
+        }
+    }
+
+    /**
+     * Closes the idle sessions keeping a lock that a move waits for, and forgets the locks
+     * of sessions the pool has closed. Sessions in use release the lock when they are returned.
+     */
+    void releaseAwaitedLocks() {
+        try {
+            Map<String, Set<String>> tenantsByShard = new HashMap<>();
+            holders.forEach((session, holder) -> {
+                if (isClosed(session)) {
+                    holders.remove(session, holder);
+                } else {
+                    tenantsByShard.computeIfAbsent(holder.shard(), shard -> new HashSet<>()).add(holder.tenant());
+                }
+            });
+
+            Set<String> found = new HashSet<>();
+            tenantsByShard.forEach((shard, tenants) -> new JdbcTemplate(shards.getDataSource(shard)).query(SELECT_AWAITED,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", tenants.toArray())),
+                    rs -> {
+                        found.add(rs.getString(1) + "@" + shard);
+                    }));
+            awaited.retainAll(found);
+            awaited.addAll(found);
+
+            holders.forEach((session, holder) -> {
+                // Evicted before it is forgotten: a session checked out in between finds its holder and
+                // releases the lock, instead of taking it a second time
+                if (found.contains(holder.tenant() + "@" + holder.shard()) && isClosed(holder.connection())) {
+                    evict(shards.getTenantDataSource(holder.shard()), holder.connection());
+                    holders.remove(session, holder);
+                }
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Failed to poll for tenant moves", ex);
+        }
+    }
+
+    /**
+     * Tries the tenant's shared lock, releasing the lock of another tenant kept by the session first.
+     *
+     * @param kept The tenant whose lock the session keeps, or null
+     * @return null if the lock is taken exclusively, the shard the tenant was moved to
+     *         if the shard is fenced, or an empty string if the lock was granted
+     */
+    private static String tryLockShared(Connection connection, String tenant, String kept) throws SQLException {
+        String sql = kept != null ? UNLOCK_SHARED + "; " + TRY_LOCK_SHARED : TRY_LOCK_SHARED;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (kept != null) {
+                statement.setString(index++, kept);
+            }
+            statement.setString(index++, tenant);
+            statement.setString(index, tenant);
+            statement.execute();
+            if (kept != null) {
+                statement.getMoreResults();
+            }
+            boolean locked;
+            try (ResultSet rs = statement.getResultSet()) {
+                locked = rs.next() && rs.getBoolean(1);
+            }
+            statement.getMoreResults();
+            try (ResultSet rs = statement.getResultSet()) {
+                if (!locked) {
+                    return null;
+                }
+                return rs.next() ? rs.getString(1) : "";
+            }
+        }
+    }
+
+    /**
+     * Wraps a connection holding the tenant's shared lock. Closing it returns the connection with
+     * the lock kept by its session, unless a move waits for the lock, which is then released.
+     */
+    private Connection guard(Connection connection, Connection session, DataSource dataSource, String tenant, String key) {
+        HELD.get().add(key);
+        String shard = key.substring(tenant.length() + 1);
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        if (closed.compareAndSet(false, true)) {
+                            HELD.get().remove(key);
+                            if (awaited.contains(key)) {
+                                release(connection, dataSource, tenant);
+                            } else {
+                                holders.put(session, new Holder(shard, tenant, connection));
+                                connection.close();
+                            }
+                        }
+                        yield null;
+                    }
+                    case "isClosed" -> closed.get() || connection.isClosed();
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Releases the tenant's shared lock and returns the connection to the pool.
+     */
+    private static void release(Connection connection, DataSource dataSource, String tenant) {
+        try (PreparedStatement statement = connection.prepareStatement(UNLOCK_SHARED)) {
+            statement.setString(1, tenant);
+            statement.execute();
+        } catch (SQLException ex) {
+            // The lock must not stay with the pooled session, or it would hold moves back
+            log.warn("Failed to release the lock of tenant {}; discarding the connection", tenant, ex);
+            evict(dataSource, connection);
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            log.warn("Failed to return a connection of tenant {} to the pool", tenant, ex);
+        }
+    }
+
+    /**
+     * Closes a connection's database session instead of returning it to the pool.
+     */
+    private static void evict(DataSource dataSource, Connection connection) {
+        if (dataSource instanceof HikariDataSource pool) {
+            pool.evictConnection(connection);
+        } else {
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                log.warn("Failed to close a connection", ex);
+            }
+        }
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TenantUnavailableException("Interrupted while waiting for a tenant move");
+        }
+    }
+
+    /**
+     * Opens a connection of a shard.
+     */
+    @FunctionalInterface
+    public interface Opener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * Tenant lock kept by a session, with the pool's connection last handed out for it.
+     */
+    private record Holder(String shard, String tenant, Connection connection) {
+    }
+}
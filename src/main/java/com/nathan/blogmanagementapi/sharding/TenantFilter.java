@@ -0,0 +1,82 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Servlet filter that binds each request to the tenant named in its X-Tenant-ID header,
+ * or to the default tenant when the header is missing. Tenants that have not been created are
+ * rejected before the request reaches a database.
+ * Errors are rendered by GlobalExceptionHandler, like errors raised by controllers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TenantFilter extends OncePerRequestFilter {
+
+    /**
+     * Request header naming the tenant.
+     */
+    public static final String TENANT_HEADER = "X-Tenant-ID";
+
+    /**
+     * Tenant IDs are lowercase letters, digits and dashes, up to the size of the tenant_id column.
+     */
+    private static final Pattern TENANT_PATTERN = Pattern.compile("[a-z0-9][a-z0-9-]{0,62}");
+
+    private final ShardDirectory shardDirectory;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public TenantFilter(ShardDirectory shardDirectory,
+                        @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.shardDirectory = shardDirectory;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    /**
+     * Checks whether a string is a valid tenant ID.
+     *
+     * @param tenant The candidate tenant ID
+     * @return true if the tenant ID is well-formed
+     */
+    public static boolean isValidTenant(String tenant) {
+        return tenant != null && TENANT_PATTERN.matcher(tenant).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(TENANT_HEADER);
+        if (header != null && !isValidTenant(header)) {
+            exceptionResolver.resolveException(request, response, null, new BadRequestException(
+                    TENANT_HEADER + " must be 1 to 63 lowercase letters, digits or dashes, starting with a letter or digit"));
+            return;
+        }
+
+        String tenant = header != null ? header : TenantContext.DEFAULT_TENANT;
+        // Admin requests are exempt, since tenants are created by them
+        if (!request.getRequestURI().startsWith("/api/admin/") && !shardDirectory.contains(tenant)) {
+            exceptionResolver.resolveException(request, response, null,
+                    new ResourceNotFoundException("Tenant not found: " + tenant));
+            return;
+        }
+        TenantContext.setTenant(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clearTenant();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.nathan.blogmanagementapi.sharding;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Supplies Hibernate with the tenant of the current thread. Hibernate stamps new entities
+ * with it and restricts every entity query, including lookups by ID, to that tenant.
+ */
+public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver<String> {
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return TenantContext.getTenant();
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return true;
+    }
+}
@@ -0,0 +1,234 @@
+package com.nathan.blogmanagementapi.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import net.ttddyy.observation.tracing.QueryContext;
+import net.ttddyy.observation.tracing.ResultSetContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Observation handler that assembles observations into span trees and exports them to the log.
+ * A tree is exported when its root observation (usually the HTTP request) stops: every tree
+ * when blog.tracing.export=all, otherwise only trees that were slow or contained a slow query.
+ * Slow queries are additionally logged on their own as they finish.
+ */
+@Component
+public class SpanTreeObservationHandler implements ObservationHandler<Observation.Context> {
+
+    private static final Logger SPAN_LOG = LoggerFactory.getLogger("blog.tracing.spans");
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("blog.tracing.slow");
+
+    /**
+     * Maximum number of spans kept per tree; further spans are counted but not recorded.
+     */
+    private static final int MAX_SPANS = 500;
+
+    private static final int MAX_SQL_LENGTH = 500;
+
+    private final boolean exportAll;
+    private final long slowRequestNanos;
+    private final long slowQueryNanos;
+
+    public SpanTreeObservationHandler(@Value("${blog.tracing.export:slow}") String export,
+                                      @Value("${blog.tracing.slow-request-threshold:500ms}") Duration slowRequestThreshold,
+                                      @Value("${blog.tracing.slow-query-threshold:100ms}") Duration slowQueryThreshold) {
+        this.exportAll = "all".equalsIgnoreCase(export);
+        this.slowRequestNanos = slowRequestThreshold.toNanos();
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        ObservationView parentObservation = context.getParentObservation();
+        Span parent = parentObservation != null ? parentObservation.getContextView().get(Span.class) : null;
+        Span span = new Span(parent);
+        if (parent != null) {
+            // Spans beyond the limit are still tracked, so their children do not become roots
+            parent.tree.attach(parent, span);
+        }
+        context.put(Span.class, span);
+    }
+
+    @Override
+    public void onEvent(Observation.Event event, Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span != null) {
+            span.events.add(event.getName() + "@" + millis(System.nanoTime() - span.start) + "ms");
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span == null) {
+            return;
+        }
+
+        span.duration = System.nanoTime() - span.start;
+        span.name = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        for (KeyValue keyValue : context.getLowCardinalityKeyValues()) {
+            if (isInformative(keyValue, span)) {
+                span.tags.add(keyValue.getKey() + "=" + keyValue.getValue());
+            }
+        }
+        if (context.getError() != null) {
+            span.tags.add("error=" + context.getError().getClass().getSimpleName());
+        }
+        describeJdbc(context, span);
+
+        if (span.parent == null) {
+            export(span);
+        }
+    }
+
+    /**
+     * Skips placeholder values, values repeating the span name, and datasource details
+     * below the connection span, which would otherwise be repeated on every query.
+     */
+    private static boolean isInformative(KeyValue keyValue, Span span) {
+        String value = keyValue.getValue();
+        if ("none".equals(value) || "UNKNOWN".equals(value) || value.equals(span.name)) {
+            return false;
+        }
+        return !keyValue.getKey().startsWith("jdbc.datasource.") || "connection".equals(span.name);
+    }
+
+    /**
+     * Adds SQL, bound parameter counts and row counts to JDBC spans, and logs slow queries.
+     */
+    private void describeJdbc(Observation.Context context, Span span) {
+        if (context instanceof QueryContext query) {
+            int parameters = countParameters(query);
+            span.tags.add("params=" + parameters);
+            if (query.getAffectedRowCount() != null) {
+                span.tags.add("rows=" + query.getAffectedRowCount());
+            }
+            span.detail = abbreviate(String.join("; ", query.getQueries()));
+
+            if (span.duration >= slowQueryNanos) {
+                span.tree.slow.set(true);
+                SLOW_LOG.warn("Slow query ({} ms, {} params): {}", millis(span.duration), parameters, span.detail);
+            }
+        } else if (context instanceof ResultSetContext resultSet) {
+            span.tags.add("rows=" + resultSet.getCount());
+        }
+    }
+
+    private void export(Span root) {
+        boolean slow = root.duration >= slowRequestNanos || root.tree.slow.get();
+        if (!slow && !exportAll) {
+            return;
+        }
+
+        StringBuilder tree = new StringBuilder();
+        render(root, 0, tree);
+        int dropped = root.tree.dropped.get();
+        if (dropped > 0) {
+            tree.append("  ... ").append(dropped).append(" more spans not recorded\n");
+        }
+
+        if (slow) {
+            SLOW_LOG.warn("Slow trace ({} ms):\n{}", millis(root.duration), tree);
+        } else {
+            SPAN_LOG.info("Trace ({} ms):\n{}", millis(root.duration), tree);
+        }
+    }
+
+    private static void render(Span span, int depth, StringBuilder out) {
+        out.append("  ".repeat(depth + 1))
+                .append(span.name).append(' ')
+                .append(millis(span.duration)).append("ms");
+        if (!span.tags.isEmpty()) {
+            out.append(' ').append(span.tags);
+        }
+        if (!span.events.isEmpty()) {
+            out.append(" events=").append(span.events);
+        }
+        if (span.detail != null) {
+            out.append(" | ").append(span.detail);
+        }
+        out.append('\n');
+
+        List<Span> children = new ArrayList<>(span.children);
+        children.sort(Comparator.comparingLong(child -> child.start));
+        for (Span child : children) {
+            render(child, depth + 1, out);
+        }
+    }
+
+    /**
+     * Returns the number of parameters a query bound, as recorded by {@link ParameterCountTagProvider}.
+     */
+    static int countParameters(QueryContext query) {
+        int count = 0;
+        for (String parameters : query.getParams()) {
+            count += Integer.parseInt(parameters);
+        }
+        return count;
+    }
+
+    private static String abbreviate(String sql) {
+        String singleLine = sql.replaceAll("\\s+", " ").trim();
+        return singleLine.length() > MAX_SQL_LENGTH ? singleLine.substring(0, MAX_SQL_LENGTH) + "..." : singleLine;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * One recorded observation and its children.
+     */
+    private static final class Span {
+        final Span parent;
+        final Tree tree;
+        final long start = System.nanoTime();
+        final Queue<Span> children = new ConcurrentLinkedQueue<>();
+        final Queue<String> events = new ConcurrentLinkedQueue<>();
+        final List<String> tags = new ArrayList<>();
+        volatile long duration;
+        volatile String name;
+        volatile String detail;
+
+        Span(Span parent) {
+            this.parent = parent;
+            this.tree = parent != null ? parent.tree : new Tree();
+        }
+    }
+
+    /**
+     * State shared by all spans of one tree.
+     */
+    private static final class Tree {
+        final AtomicInteger size = new AtomicInteger(1);
+        final AtomicInteger dropped = new AtomicInteger();
+        final AtomicBoolean slow = new AtomicBoolean();
+
+        void attach(Span parent, Span child) {
+            if (size.incrementAndGet() > MAX_SPANS) {
+                dropped.incrementAndGet();
+                return;
+            }
+            parent.children.add(child);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.nathan.blogmanagementapi.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aspect that wraps controller and service calls in observations.
+ * Each call becomes a span nested under the HTTP request, with the SQL it runs nested below it.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class TracingAspect {
+
+    /**
+     * Registry the observations are recorded in.
+     * Injected through constructor (RequiredArgsConstructor).
+     */
+    private final ObservationRegistry observationRegistry;
+
+    @Around("within(com.nathan.blogmanagementapi.controller..*)")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe("blog.controller", joinPoint);
+    }
+
+    @Around("within(com.nathan.blogmanagementapi.service..*)")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe("blog.service", joinPoint);
+    }
+
+    private Object observe(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        return Observation.createNotStarted(name, observationRegistry)
+                .contextualName(method)
+                .lowCardinalityKeyValue("method", method)
+                .observeChecked(() -> joinPoint.proceed());
+    }
+}
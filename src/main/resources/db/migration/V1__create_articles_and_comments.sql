@@ -0,0 +1,21 @@
+--
+-- Initial schema, derived from blog-db.sql
+--
+
+CREATE TABLE articles (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    content text NOT NULL,
+    created_at timestamp(6) without time zone NOT NULL,
+    title character varying(100) NOT NULL,
+    updated_at timestamp(6) without time zone,
+    CONSTRAINT articles_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE comments (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    content text NOT NULL,
+    created_at timestamp(6) without time zone NOT NULL,
+    article_id bigint NOT NULL,
+    CONSTRAINT comments_pkey PRIMARY KEY (id),
+    CONSTRAINT fkk4ib6syde10dalk7r7xdl0m5p FOREIGN KEY (article_id) REFERENCES articles (id)
+);
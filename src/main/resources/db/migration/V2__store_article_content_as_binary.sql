@@ -0,0 +1,7 @@
+--
+-- Article content is stored as a format byte followed by the encoded text
+-- (see ArticleContentConverter). Existing rows become plain UTF-8 (format 0).
+--
+
+ALTER TABLE articles
+    ALTER COLUMN content TYPE bytea USING '\x00'::bytea || convert_to(content, 'UTF8');
@@ -0,0 +1,8 @@
+--
+-- Store article content out of line without PostgreSQL compression, so that
+-- substring() reads used for streaming only fetch the TOAST chunks they need.
+-- Content compression is handled by the application (blog.content.compression).
+--
+
+ALTER TABLE articles
+    ALTER COLUMN content SET STORAGE EXTERNAL;
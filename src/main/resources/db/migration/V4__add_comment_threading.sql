@@ -0,0 +1,20 @@
+--
+-- Threaded comments. Each comment stores a materialized path: the IDs of its
+-- ancestors and its own ID, each as 16 hex digits followed by '.'. Sorting by
+-- path in the "C" collation yields threads in depth-first order, so a whole
+-- thread is one range scan of idx_comments_article_path.
+--
+
+ALTER TABLE comments
+    ADD COLUMN parent_id bigint,
+    ADD COLUMN path character varying(255) COLLATE "C",
+    ADD COLUMN depth integer NOT NULL DEFAULT 0,
+    ADD COLUMN reply_count integer NOT NULL DEFAULT 0;
+
+-- Existing comments become top-level comments
+UPDATE comments SET path = lpad(to_hex(id), 16, '0') || '.';
+
+CREATE INDEX idx_comments_article_path ON comments (article_id, path);
+
+-- Top-level comments only, for paging through the threads of an article
+CREATE INDEX idx_comments_article_roots ON comments (article_id, path) WHERE depth = 0;
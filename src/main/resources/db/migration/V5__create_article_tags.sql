@@ -0,0 +1,11 @@
+--
+-- Article tags. The application keeps an in-memory bitmap index per tag,
+-- rebuilt from this table at startup.
+--
+
+CREATE TABLE article_tags (
+    article_id bigint NOT NULL,
+    tag character varying(50) NOT NULL,
+    CONSTRAINT article_tags_pkey PRIMARY KEY (article_id, tag),
+    CONSTRAINT fk_article_tags_article FOREIGN KEY (article_id) REFERENCES articles (id)
+);
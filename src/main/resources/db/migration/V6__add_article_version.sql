@@ -0,0 +1,7 @@
+--
+-- Version for optimistic locking of articles. Incremented on every change and
+-- exposed as the ETag that PATCH requests check through If-Match.
+--
+
+ALTER TABLE articles
+    ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,27 @@
+--
+-- Tenants. Every article and comment belongs to a tenant (one blog), and every tenant
+-- lives on one shard. Rows from before sharding belong to the default tenant.
+-- Each shard runs this migration with its own shard_number; the tenant_shards
+-- directory is only used on the primary shard.
+--
+
+ALTER TABLE articles ADD COLUMN tenant_id character varying(63) NOT NULL DEFAULT 'default';
+ALTER TABLE articles ALTER COLUMN tenant_id DROP DEFAULT;
+
+ALTER TABLE comments ADD COLUMN tenant_id character varying(63) NOT NULL DEFAULT 'default';
+ALTER TABLE comments ALTER COLUMN tenant_id DROP DEFAULT;
+
+CREATE INDEX idx_articles_tenant ON articles (tenant_id, id);
+CREATE INDEX idx_comments_tenant ON comments (tenant_id, id);
+
+-- IDs are unique across shards, so a tenant can be moved without renumbering:
+-- shard n allocates IDs from n * 2^40 on, the primary shard (0) continues as before
+SELECT setval(pg_get_serial_sequence('articles', 'id'), ${shard_number}::bigint << 40, false) WHERE ${shard_number} > 0;
+SELECT setval(pg_get_serial_sequence('comments', 'id'), ${shard_number}::bigint << 40, false) WHERE ${shard_number} > 0;
+
+CREATE TABLE tenant_shards (
+    tenant_id character varying(63) NOT NULL,
+    shard character varying(63) NOT NULL,
+    assigned_at timestamp(6) without time zone NOT NULL,
+    CONSTRAINT tenant_shards_pkey PRIMARY KEY (tenant_id)
+);
@@ -0,0 +1,12 @@
+--
+-- Tenant fences. When a tenant has been moved off a shard, the shard keeps a fence row
+-- naming the new shard, so instances whose tenant directory is out of date notice the move
+-- when they connect and reload the directory instead of using the old shard.
+--
+
+CREATE TABLE tenant_fences (
+    tenant_id character varying(63) NOT NULL,
+    moved_to character varying(63) NOT NULL,
+    moved_at timestamp(6) without time zone NOT NULL,
+    CONSTRAINT tenant_fences_pkey PRIMARY KEY (tenant_id)
+);
@@ -0,0 +1,76 @@
+package com.nathan.blogmanagementapi;
+
+import org.hibernate.tool.schema.spi.SchemaManagementException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Boots the prod profile against a scratch database, so the schema comes from the migrations alone
+class ProdProfileTests {
+
+    private static final String SERVER = "jdbc:postgresql://localhost:5432/";
+
+    @TempDir
+    private Path directory;
+
+    private final String database = "blog_prod_test_" + System.nanoTime();
+
+    private final JdbcTemplate server = jdbcTemplate("postgres");
+
+    @BeforeEach
+    void createDatabase() {
+        server.execute("create database " + database);
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        server.execute("drop database if exists " + database + " with (force)");
+    }
+
+    @Test
+    void migrationsCreateASchemaThatValidates() {
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate scratch = jdbcTemplate(database);
+            assertEquals(List.of("1", "2", "3", "4", "5", "6", "7", "8"), scratch.queryForList(
+                    "select version from flyway_schema_history where success order by installed_rank", String.class));
+            assertEquals("validate", context.getEnvironment().getProperty("spring.jpa.hibernate.ddl-auto"));
+        }
+    }
+
+    @Test
+    void schemaThatDriftedFromTheEntitiesFailsTheBoot() {
+        start().close();
+        jdbcTemplate(database).execute("alter table articles drop column updated_at");
+
+        // Flyway sees nothing to migrate, and Hibernate no longer repairs the schema
+        RuntimeException failure = assertThrows(RuntimeException.class, this::start);
+        assertInstanceOf(SchemaManagementException.class, NestedExceptionUtils.getMostSpecificCause(failure));
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BlogManagementApiApplication.class)
+                .profiles("prod")
+                // Arguments, as default properties would lose to application.properties
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + SERVER + database,
+                        "--blog.stats.checkpoint-file=" + directory.resolve("checkpoint.json"),
+                        "--blog.tracing.file=" + directory.resolve("traces.log"));
+    }
+
+    private static JdbcTemplate jdbcTemplate(String database) {
+        return new JdbcTemplate(new DriverManagerDataSource(SERVER + database, "postgres", "nathan"));
+    }
+}
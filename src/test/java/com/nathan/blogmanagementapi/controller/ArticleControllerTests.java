@@ -0,0 +1,134 @@
+package com.nathan.blogmanagementapi.controller;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.service.ArticleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ArticleControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long articleId;
+
+    @BeforeEach
+    void createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Original title");
+        request.setContent("Original content");
+        request.setTags(Set.of("first", "second"));
+        articleId = articleService.createArticle(request).getId();
+    }
+
+    @AfterEach
+    void deleteArticle() {
+        articleService.deleteArticle(articleId);
+    }
+
+    @Test
+    void patchChangesOnlyTheGivenFields() throws Exception {
+        patchArticle("{\"title\": \"New title\", \"content\": \"New content\"}", null)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.title").value("New title"))
+                .andExpect(jsonPath("$.content").value("New content"))
+                .andExpect(jsonPath("$.tags", contains("first", "second")))
+                .andExpect(jsonPath("$.version").value(1));
+
+        // Both fields are written in one update
+        assertEquals(1, storedVersion());
+    }
+
+    @Test
+    void nullRemovesTagsButNotTitleOrContent() throws Exception {
+        patchArticle("{\"tags\": null}", null)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tags", empty()));
+
+        patchArticle("{\"title\": null}", null).andExpect(status().isBadRequest());
+        patchArticle("{\"content\": null}", null).andExpect(status().isBadRequest());
+        assertEquals(1, storedVersion());
+    }
+
+    @Test
+    void unknownOrInvalidFieldIsRejected() throws Exception {
+        patchArticle("{\"title\": \"Ignored\", \"author\": \"Someone\"}", null)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown field: author"));
+        patchArticle("{\"title\": \"\"}", null).andExpect(status().isBadRequest());
+        patchArticle("[]", null).andExpect(status().isBadRequest());
+
+        assertEquals(0, storedVersion());
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        patchArticle("{\"title\": \"First change\"}", "\"0\"").andExpect(status().isOk());
+
+        patchArticle("{\"title\": \"Lost update\"}", "\"0\"").andExpect(status().isPreconditionFailed());
+        patchArticle("{\"title\": \"Second change\"}", "\"1\"")
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+        patchArticle("{\"title\": \"Any version\"}", "*").andExpect(status().isOk());
+    }
+
+    @Test
+    void weakIfMatchNeverMatches() throws Exception {
+        // If-Match uses the strong comparison, even when the weak tag names the current version
+        patchArticle("{\"title\": \"Weakly matched\"}", "W/\"0\"").andExpect(status().isPreconditionFailed());
+        patchArticle("{\"title\": \"Unquoted\"}", "0").andExpect(status().isPreconditionFailed());
+
+        assertEquals(0, storedVersion());
+    }
+
+    @Test
+    void patchWithoutChangesKeepsTheVersion() throws Exception {
+        patchArticle("{\"title\": \"Original title\", \"content\": \"Original content\", \"tags\": [\"Second\", \"first\"]}", "\"0\"")
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+
+        assertEquals(0, storedVersion());
+    }
+
+    private ResultActions patchArticle(String body, String ifMatch) throws Exception {
+        var request = patch("/api/articles/{id}", articleId)
+                .contentType("application/merge-patch+json")
+                .content(body);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request);
+    }
+
+    private long storedVersion() {
+        return jdbcTemplate.queryForObject("select version from articles where id = ?", Long.class, articleId);
+    }
+}
@@ -0,0 +1,73 @@
+package com.nathan.blogmanagementapi.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArticleContentConverterTests {
+
+    private static final String LONG_CONTENT = "Compressible content – ✓. ".repeat(100);
+
+    private final ArticleContentConverter deflate = new ArticleContentConverter("deflate", DataSize.ofBytes(64));
+
+    @Test
+    void contentBelowTheThresholdIsStoredPlain() {
+        byte[] stored = deflate.convertToDatabaseColumn("Short – ✓");
+
+        assertEquals(ArticleContentConverter.FORMAT_PLAIN, stored[0]);
+        assertEquals("Short – ✓", new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8));
+        assertEquals("Short – ✓", deflate.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void contentAboveTheThresholdIsStoredCompressed() {
+        byte[] stored = deflate.convertToDatabaseColumn(LONG_CONTENT);
+
+        assertEquals(ArticleContentConverter.FORMAT_DEFLATE, stored[0]);
+        assertTrue(stored.length < LONG_CONTENT.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertEquals(LONG_CONTENT, deflate.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void incompressibleContentIsStoredPlain() {
+        // Without repeats every character costs deflate a full byte, plus its block header
+        String content = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ-_";
+
+        byte[] stored = deflate.convertToDatabaseColumn(content);
+
+        assertEquals(ArticleContentConverter.FORMAT_PLAIN, stored[0]);
+        assertEquals(content, deflate.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void bothFormatsAreReadWhateverTheCompressionSetting() {
+        ArticleContentConverter none = new ArticleContentConverter("none", DataSize.ofBytes(64));
+
+        byte[] plain = none.convertToDatabaseColumn(LONG_CONTENT);
+        assertEquals(ArticleContentConverter.FORMAT_PLAIN, plain[0]);
+        assertEquals(LONG_CONTENT, deflate.convertToEntityAttribute(plain));
+        assertEquals(LONG_CONTENT, none.convertToEntityAttribute(deflate.convertToDatabaseColumn(LONG_CONTENT)));
+    }
+
+    @Test
+    void nullIsPassedThrough() {
+        assertNull(deflate.convertToDatabaseColumn(null));
+        assertNull(deflate.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void unknownOrCorruptStoredContentIsRejected() {
+        assertThrows(IllegalStateException.class, () -> deflate.convertToEntityAttribute(new byte[]{7, 1, 2}));
+
+        byte[] stored = deflate.convertToDatabaseColumn(LONG_CONTENT);
+        byte[] truncated = new byte[stored.length / 2];
+        System.arraycopy(stored, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalStateException.class, () -> deflate.convertToEntityAttribute(truncated));
+    }
+}
@@ -0,0 +1,130 @@
+package com.nathan.blogmanagementapi.repository;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArticleArchiveStoreTests {
+
+    @TempDir
+    private Path directory;
+
+    private ArticleArchiveStore store;
+
+    @BeforeEach
+    void openStore() throws IOException {
+        store = open();
+    }
+
+    @AfterEach
+    void closeStore() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void archivedArticleIsReadBackWithItsComments() throws IOException {
+        ArticleDto.DetailedResponse article = article(1L);
+        store.append(article);
+
+        assertTrue(store.contains(1L));
+        assertEquals(1, store.size());
+        assertEquals(Optional.of(article), store.find(1L));
+        assertEquals(Optional.empty(), store.find(2L));
+    }
+
+    @Test
+    void articlesAreReadFromSealedAndActiveSegments() throws IOException {
+        // Each record fills a segment, so every append after the first starts a new one
+        for (long id = 1; id <= 4; id++) {
+            store.append(article(id));
+        }
+
+        assertTrue(Files.exists(directory.resolve("segment-00000004.dat")));
+        for (long id = 1; id <= 4; id++) {
+            assertEquals(Optional.of(article(id)), store.find(id));
+        }
+    }
+
+    @Test
+    void reloadRestoresArchivedArticlesAndTombstones() throws IOException {
+        store.append(article(1L));
+        store.append(article(2L));
+        store.append(article(3L));
+        assertTrue(store.remove(2L));
+        assertFalse(store.remove(2L));
+        assertFalse(store.contains(2L));
+
+        store.close();
+        store = open();
+
+        assertEquals(2, store.size());
+        assertEquals(Optional.of(article(1L)), store.find(1L));
+        assertEquals(Optional.empty(), store.find(2L));
+        assertEquals(Optional.of(article(3L)), store.find(3L));
+
+        store.append(article(4L));
+        assertEquals(Optional.of(article(4L)), store.find(4L));
+    }
+
+    @Test
+    void partialIndexEntryIsTruncatedOnLoad() throws IOException {
+        store.append(article(1L));
+        store.close();
+        // Left behind by a crash in the middle of writing an entry
+        Files.write(directory.resolve("archive.idx"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        store = open();
+        assertEquals(1, store.size());
+        store.append(article(2L));
+        store.close();
+
+        store = open();
+        assertEquals(2, store.size());
+        assertEquals(Optional.of(article(1L)), store.find(1L));
+        assertEquals(Optional.of(article(2L)), store.find(2L));
+    }
+
+    private ArticleArchiveStore open() throws IOException {
+        ArticleArchiveStore opened = new ArticleArchiveStore(JsonMapper.builder().findAndAddModules().build(),
+                directory, DataSize.ofBytes(64));
+        opened.loadIndexes();
+        return opened;
+    }
+
+    private static ArticleDto.DetailedResponse article(Long id) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0).plusDays(id);
+        CommentDto.Response comment = new CommentDto.Response();
+        comment.setId(id * 10);
+        comment.setContent("Comment on article " + id);
+        comment.setArticleId(id);
+        comment.setCreatedAt(createdAt);
+
+        ArticleDto.DetailedResponse article = new ArticleDto.DetailedResponse();
+        article.setId(id);
+        article.setTitle("Archived article " + id);
+        article.setContent("Content of archived article " + id);
+        article.setCreatedAt(createdAt);
+        article.setUpdatedAt(createdAt);
+        article.setTags(List.of("archived"));
+        article.setVersion(0L);
+        article.setComments(List.of(comment));
+        return article;
+    }
+}
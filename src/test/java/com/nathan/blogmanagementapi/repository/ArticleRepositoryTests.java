@@ -0,0 +1,122 @@
+package com.nathan.blogmanagementapi.repository;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.model.Article;
+import com.nathan.blogmanagementapi.model.ArticleContentConverter;
+import com.nathan.blogmanagementapi.service.ArticleService;
+import com.nathan.blogmanagementapi.service.CommentService;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "blog.content.compression=deflate",
+        "blog.content.compression-threshold=64B"
+})
+class ArticleRepositoryTests {
+
+    private static final String LONG_CONTENT = "Long enough to be compressed. ".repeat(20);
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void contentIsLoadedOnlyWhenRead() {
+        Long id = createArticle(LONG_CONTENT);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Article article = articleRepository.findById(id).orElseThrow();
+            assertFalse(Hibernate.isPropertyInitialized(article, "content"));
+            assertEquals("Stored", article.getTitle());
+            assertFalse(Hibernate.isPropertyInitialized(article, "content"));
+
+            assertEquals(LONG_CONTENT, article.getContent());
+            assertTrue(Hibernate.isPropertyInitialized(article, "content"));
+        });
+    }
+
+    @Test
+    void contentIsStoredInTheConfiguredFormat() {
+        Long compressed = createArticle(LONG_CONTENT);
+        Long plain = createArticle("Short");
+
+        assertEquals(ArticleContentConverter.FORMAT_DEFLATE, storedFormat(compressed));
+        assertEquals(ArticleContentConverter.FORMAT_PLAIN, storedFormat(plain));
+    }
+
+    @Test
+    void summariesCarryContentAndCommentCounts() {
+        Long commented = createArticle(LONG_CONTENT);
+        Long uncommented = createArticle("Short");
+        createComment(commented);
+        createComment(commented);
+
+        List<ArticleRepository.ArticleSummary> summaries = articleRepository.findSummariesByIds(List.of(commented, uncommented));
+
+        ArticleRepository.ArticleSummary first = summaries.stream().filter(summary -> summary.getId().equals(commented)).findFirst().orElseThrow();
+        ArticleRepository.ArticleSummary second = summaries.stream().filter(summary -> summary.getId().equals(uncommented)).findFirst().orElseThrow();
+        assertEquals(LONG_CONTENT, first.getContent());
+        assertEquals(2, first.getCommentCount());
+        assertEquals("Short", second.getContent());
+        assertEquals(0, second.getCommentCount());
+    }
+
+    @Test
+    void storedContentIsComparedInItsStoredForm() {
+        Long id = createArticle(LONG_CONTENT);
+
+        assertTrue(articleRepository.hasContent(id, LONG_CONTENT));
+        assertFalse(articleRepository.hasContent(id, LONG_CONTENT + "!"));
+        assertFalse(articleRepository.hasContent(id + 1_000_000, LONG_CONTENT));
+    }
+
+    private Long createArticle(String content) {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Stored");
+        request.setContent(content);
+        Long id = articleService.createArticle(request).getId();
+        createdIds.add(id);
+        return id;
+    }
+
+    private void createComment(Long articleId) {
+        CommentDto.Request request = new CommentDto.Request();
+        request.setContent("Counted");
+        commentService.createComment(articleId, request);
+    }
+
+    private byte storedFormat(Long id) {
+        return jdbcTemplate.queryForObject("select get_byte(content, 0) from articles where id = ?", Integer.class, id).byteValue();
+    }
+}
@@ -0,0 +1,164 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.model.ArticleContentConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "blog.content.compression=deflate",
+        "blog.content.compression-threshold=64B",
+        "blog.content.stream-chunk-size=16B",
+        "blog.content.max-size=1KB"
+})
+class ArticleContentServiceTests {
+
+    // Multi-byte characters keep landing on chunk boundaries
+    private static final String SHORT_CONTENT = "Chunked – ✓ über €";
+
+    private static final String LONG_CONTENT = "Streamed in chunks – ✓ ünd € 🚀. ".repeat(20);
+
+    @Autowired
+    private ArticleContentService articleContentService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void uploadedContentIsReadBackInChunks() throws IOException {
+        Long id = createArticle();
+
+        articleContentService.replaceContent(id, utf8(SHORT_CONTENT));
+
+        assertEquals(SHORT_CONTENT, read(id));
+        assertEquals(ArticleContentConverter.FORMAT_PLAIN, storedFormat(id));
+        assertEquals(1, version(id));
+    }
+
+    @Test
+    void largeContentIsCompressedAndStillStreamed() throws IOException {
+        Long id = createArticle();
+
+        articleContentService.replaceContent(id, utf8(LONG_CONTENT));
+
+        assertEquals(LONG_CONTENT, read(id));
+        assertEquals(ArticleContentConverter.FORMAT_DEFLATE, storedFormat(id));
+        // Hibernate reads the streamed upload like any other content
+        assertEquals(LONG_CONTENT, articleService.getArticlesByIds(List.of(id)).getArticles().get(0).getContent());
+    }
+
+    @Test
+    void everyUploadBumpsTheVersion() throws IOException {
+        Long id = createArticle();
+
+        articleContentService.replaceContent(id, utf8(SHORT_CONTENT));
+        articleContentService.replaceContent(id, utf8(LONG_CONTENT));
+
+        assertEquals(2, version(id));
+        assertEquals(2, articleService.getArticlesByIds(List.of(id)).getArticles().get(0).getVersion());
+    }
+
+    @Test
+    void contentReplacedDuringTheReadAbortsIt() throws IOException {
+        Long id = createArticle();
+        articleContentService.replaceContent(id, utf8(SHORT_CONTENT));
+
+        ArticleContentService.ContentWriter writer = articleContentService.openContent(id);
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] buffer, int offset, int length) {
+                if (size() == 0) {
+                    // Lands between the first and the second chunk
+                    try {
+                        articleContentService.replaceContent(id, utf8(LONG_CONTENT));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+                super.write(buffer, offset, length);
+            }
+        };
+
+        UncheckedIOException failure = assertThrows(UncheckedIOException.class, () -> writer.writeTo(output));
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertEquals(LONG_CONTENT, read(id));
+    }
+
+    @Test
+    void invalidUploadsAreRejectedAndLeaveTheContent() throws IOException {
+        Long id = createArticle();
+
+        assertThrows(BadRequestException.class, () -> articleContentService.replaceContent(id, utf8("")));
+        assertThrows(BadRequestException.class, () -> articleContentService.replaceContent(id, utf8("x".repeat(1025))));
+        // A truncated three-byte character at the end
+        byte[] truncated = {'o', 'k', (byte) 0xe2, (byte) 0x9c};
+        assertThrows(BadRequestException.class,
+                () -> articleContentService.replaceContent(id, new ByteArrayInputStream(truncated)));
+
+        assertEquals("Original content", read(id));
+        assertEquals(0, version(id));
+    }
+
+    @Test
+    void missingArticleIsNotFound() {
+        Long missing = createArticle() + 1_000_000;
+
+        assertThrows(ResourceNotFoundException.class, () -> articleContentService.replaceContent(missing, utf8(SHORT_CONTENT)));
+        assertThrows(ResourceNotFoundException.class, () -> articleContentService.openContent(missing));
+    }
+
+    private Long createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Streamed");
+        request.setContent("Original content");
+        Long id = articleService.createArticle(request).getId();
+        createdIds.add(id);
+        return id;
+    }
+
+    private String read(Long id) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        articleContentService.openContent(id).writeTo(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private byte storedFormat(Long id) {
+        return jdbcTemplate.queryForObject("select get_byte(content, 0) from articles where id = ?", Integer.class, id).byteValue();
+    }
+
+    private long version(Long id) {
+        return jdbcTemplate.queryForObject("select version from articles where id = ?", Long.class, id);
+    }
+
+    private static InputStream utf8(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,144 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.exception.ResourceNotFoundException;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+class ArticleIdFilterTests {
+
+    @Autowired
+    private ArticleIdFilter articleIdFilter;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void missingIdBelowTheWatermarkIsDefiniteMiss() {
+        Long deleted = createArticle();
+        Long kept = createArticle();
+        articleService.deleteArticle(deleted);
+        createdIds.remove(deleted);
+        assertFalse(articleIdFilter.isDefiniteMiss(deleted));
+
+        // The first refresh reads the IDs, the second one makes them the watermark
+        articleIdFilter.refresh();
+        articleIdFilter.refresh();
+
+        assertTrue(articleIdFilter.isDefiniteMiss(deleted));
+        assertFalse(articleIdFilter.isDefiniteMiss(kept));
+        assertThrows(ResourceNotFoundException.class, () -> articleIdFilter.checkArticle(deleted));
+    }
+
+    @Test
+    void idAboveTheWatermarkReachesTheDatabase() {
+        Long newest = createArticle();
+
+        // Another writer may have inserted it since the last refresh
+        assertFalse(articleIdFilter.isDefiniteMiss(newest + 1));
+        assertFalse(articleIdFilter.isDefiniteMiss(newest + 1000));
+    }
+
+    @Test
+    void articleOfAnotherInstanceIsNotHiddenByHigherLocalIds() {
+        articleIdFilter.refresh();
+        articleIdFilter.refresh();
+
+        // Inserted behind the filter's back, like another instance would
+        Long inserted = jdbcTemplate.queryForObject(
+                "insert into articles (tenant_id, title, content, created_at, updated_at, version) " +
+                        "values (?, 'Elsewhere', '\\x00'::bytea || convert_to('Written elsewhere', 'UTF8'), now(), now(), 0) returning id",
+                Long.class, TenantContext.DEFAULT_TENANT);
+        createdIds.add(inserted);
+        Long local = createArticle();
+
+        assertTrue(local > inserted);
+        assertFalse(articleIdFilter.isDefiniteMiss(inserted));
+        assertEquals(List.of(), articleService.getArticlesByIds(List.of(inserted)).getMissingIds());
+    }
+
+    @Test
+    void articleCreatedDuringRefreshIsReplayed() {
+        // Committed after the refresh scanned the table, so the scan does not see it
+        List<Long> created = new ArrayList<>();
+        AtomicBoolean written = new AtomicBoolean();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (written.compareAndSet(false, true)) {
+                created.add(createArticleConcurrently());
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq("select id from articles"), any(RowCallbackHandler.class));
+
+        articleIdFilter.refresh();
+
+        assertEquals(1, created.size());
+        assertFalse(articleIdFilter.isDefiniteMiss(created.get(0)));
+    }
+
+    @Test
+    void articleDeletedDuringRefreshIsReplayed() {
+        Long deleted = createArticle();
+        createdIds.remove(deleted);
+        articleIdFilter.refresh();
+
+        // Committed after the refresh scanned the table, so the scan still returns it
+        AtomicBoolean written = new AtomicBoolean();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (written.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> TenantContext.runAs(TenantContext.DEFAULT_TENANT,
+                        () -> articleService.deleteArticle(deleted))).join();
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq("select id from articles"), any(RowCallbackHandler.class));
+
+        articleIdFilter.refresh();
+
+        assertTrue(articleIdFilter.isDefiniteMiss(deleted));
+    }
+
+    private Long createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Filtered");
+        request.setContent("Known to the ID filter");
+        Long id = articleService.createArticle(request).getId();
+        createdIds.add(id);
+        return id;
+    }
+
+    private Long createArticleConcurrently() {
+        return CompletableFuture.supplyAsync(() -> TenantContext.callAs(TenantContext.DEFAULT_TENANT,
+                this::createArticle)).join();
+    }
+}
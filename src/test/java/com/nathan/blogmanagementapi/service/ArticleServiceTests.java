@@ -0,0 +1,124 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ArticleServiceTests {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String tenant = "multi-get-test-" + System.nanoTime();
+
+    @BeforeEach
+    void createTenant() {
+        shardDirectory.create(tenant, "shard-0");
+    }
+
+    @AfterEach
+    void deleteTenant() {
+        TenantContext.runAs(tenant, () -> {
+            jdbcTemplate.update("delete from article_tags where article_id in (select id from articles where tenant_id = ?)", tenant);
+            jdbcTemplate.update("delete from comments where tenant_id = ?", tenant);
+            jdbcTemplate.update("delete from articles where tenant_id = ?", tenant);
+        });
+        TenantContext.runOnShard("shard-0", () -> jdbcTemplate.update("delete from tenant_shards where tenant_id = ?", tenant));
+    }
+
+    @Test
+    void articlesAreReturnedInRequestOrderWithDuplicates() {
+        TenantContext.runAs(tenant, () -> {
+            Long first = createArticle("First", Set.of());
+            Long second = createArticle("Second", Set.of());
+
+            ArticleDto.BatchResponse response = articleService.getArticlesByIds(List.of(second, first, second));
+
+            assertEquals(List.of(second, first, second), response.getArticles().stream().map(ArticleDto.Response::getId).toList());
+            assertEquals(List.of("Second", "First", "Second"), response.getArticles().stream().map(ArticleDto.Response::getTitle).toList());
+            assertEquals(List.of(), response.getMissingIds());
+        });
+    }
+
+    @Test
+    void missingIdsAreReportedOnceInRequestOrder() {
+        TenantContext.runAs(tenant, () -> {
+            Long kept = createArticle("Kept", Set.of());
+            Long deleted = createArticle("Deleted", Set.of());
+            articleService.deleteArticle(deleted);
+            Long unknown = kept + 1_000_000;
+
+            ArticleDto.BatchResponse response = articleService.getArticlesByIds(List.of(unknown, kept, deleted, unknown));
+
+            assertEquals(List.of(kept), response.getArticles().stream().map(ArticleDto.Response::getId).toList());
+            assertEquals(List.of(unknown, deleted), response.getMissingIds());
+        });
+    }
+
+    @Test
+    void articlesCarryTheirTagsAndCommentCounts() {
+        TenantContext.runAs(tenant, () -> {
+            Long tagged = createArticle("Tagged", Set.of("java", "api"));
+            Long plain = createArticle("Plain", Set.of());
+            createComment(tagged, "First");
+            createComment(tagged, "Second");
+
+            ArticleDto.BatchResponse response = articleService.getArticlesByIds(List.of(tagged, plain));
+
+            ArticleDto.Response first = response.getArticles().get(0);
+            assertEquals(List.of("api", "java"), first.getTags());
+            assertEquals(2, first.getCommentCount());
+            assertEquals("Content of Tagged", first.getContent());
+            ArticleDto.Response second = response.getArticles().get(1);
+            assertEquals(List.of(), second.getTags());
+            assertEquals(0, second.getCommentCount());
+        });
+    }
+
+    @Test
+    void articlesOfAnotherTenantAreMissing() {
+        Long foreign = TenantContext.callAs(tenant, () -> createArticle("Foreign", Set.of()));
+
+        ArticleDto.BatchResponse response = TenantContext.callAs(TenantContext.DEFAULT_TENANT,
+                () -> articleService.getArticlesByIds(List.of(foreign)));
+
+        assertEquals(List.of(), response.getArticles());
+        assertEquals(List.of(foreign), response.getMissingIds());
+    }
+
+    private Long createArticle(String title, Set<String> tags) {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle(title);
+        request.setContent("Content of " + title);
+        request.setTags(tags);
+        return articleService.createArticle(request).getId();
+    }
+
+    private void createComment(Long articleId, String content) {
+        CommentDto.Request request = new CommentDto.Request();
+        request.setContent(content);
+        commentService.createComment(articleId, request);
+    }
+}
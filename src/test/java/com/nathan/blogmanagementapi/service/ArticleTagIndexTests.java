@@ -0,0 +1,112 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ArticleTagIndexTests {
+
+    @Autowired
+    private ArticleTagIndex articleTagIndex;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Unique to the test, so articles of other tests and earlier runs do not match
+    private final String tag = "index-test-" + System.nanoTime();
+    private final String otherTag = tag + "-other";
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void findPagesThroughMatchesInIdOrder() {
+        for (int i = 0; i < 5; i++) {
+            createArticle(i < 2 ? Set.of(tag, otherTag) : Set.of(tag));
+        }
+
+        ArticleTagIndex.Matches first = articleTagIndex.find(Set.of(tag), true, 0, 2);
+        assertEquals(createdIds.subList(0, 2), first.ids());
+        assertEquals(5, first.total());
+        assertEquals(createdIds.subList(2, 4), articleTagIndex.find(Set.of(tag), true, 2, 2).ids());
+        assertEquals(createdIds.subList(4, 5), articleTagIndex.find(Set.of(tag), true, 4, 2).ids());
+
+        ArticleTagIndex.Matches beyond = articleTagIndex.find(Set.of(tag), true, 5, 2);
+        assertTrue(beyond.ids().isEmpty());
+        assertEquals(5, beyond.total());
+
+        assertEquals(createdIds.subList(0, 2), articleTagIndex.find(Set.of(tag, otherTag), true, 0, 10).ids());
+        assertEquals(createdIds.subList(0, 2), articleTagIndex.find(Set.of(otherTag, "missing-" + tag), false, 0, 10).ids());
+        assertEquals(0, articleTagIndex.find(Set.of(tag, "missing-" + tag), true, 0, 10).total());
+    }
+
+    @Test
+    void rebuildPicksUpTagsWrittenBehindTheIndex() {
+        Long id = createArticle(Set.of());
+        jdbcTemplate.update("insert into article_tags (article_id, tag) values (?, ?)", id, tag);
+        assertEquals(0, articleTagIndex.find(Set.of(tag), true, 0, 10).total());
+
+        articleTagIndex.rebuild();
+
+        assertEquals(List.of(id), articleTagIndex.find(Set.of(tag), true, 0, 10).ids());
+    }
+
+    @Test
+    void changesAreIndexedOnlyOnceCommitted() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long committed = transaction.execute(status -> {
+            Long id = createArticle(Set.of(tag));
+            assertEquals(0, articleTagIndex.find(Set.of(tag), true, 0, 10).total());
+            return id;
+        });
+        assertEquals(List.of(committed), articleTagIndex.find(Set.of(tag), true, 0, 10).ids());
+
+        transaction.executeWithoutResult(status -> {
+            ArticleDto.Request request = new ArticleDto.Request();
+            request.setTitle("Rolled back");
+            request.setContent("Never indexed");
+            request.setTags(Set.of(tag));
+            articleService.createArticle(request);
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(committed), articleTagIndex.find(Set.of(tag), true, 0, 10).ids());
+
+        articleService.deleteArticle(committed);
+        createdIds.remove(committed);
+        assertEquals(0, articleTagIndex.find(Set.of(tag), true, 0, 10).total());
+    }
+
+    private Long createArticle(Set<String> tags) {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Tagged");
+        request.setContent("Found through the tag index");
+        request.setTags(tags);
+        Long id = articleService.createArticle(request).getId();
+        createdIds.add(id);
+        return id;
+    }
+}
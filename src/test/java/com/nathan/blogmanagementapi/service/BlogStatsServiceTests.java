@@ -0,0 +1,164 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class BlogStatsServiceTests {
+
+    @Autowired
+    private BlogStatsService blogStatsService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @MockitoSpyBean
+    private ShardDirectory shardDirectory;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void writeCommittedBeforeTheSnapshotIsCountedOnce() {
+        // Commits after the reconciliation started journaling, before it reads the shard
+        AtomicBoolean written = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (written.compareAndSet(false, true)) {
+                createArticleConcurrently();
+            }
+            return invocation.callRealMethod();
+        }).when(shardDirectory).getTenantsOn(anyString());
+
+        blogStatsService.reconcile();
+
+        assertEquals(countArticles(), blogStatsService.getStats().getArticleCount());
+    }
+
+    @Test
+    void writeCommittedAfterTheSnapshotIsReplayed() {
+        // Commits while the reconciliation reads the shard, after its snapshot was taken
+        AtomicBoolean written = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (written.compareAndSet(false, true)) {
+                createArticleConcurrently();
+            }
+            return invocation.callRealMethod();
+        }).when(jdbcTemplate).query(startsWith("select tenant_id, cast(created_at as date), count(*) from articles"),
+                any(RowCallbackHandler.class));
+
+        blogStatsService.reconcile();
+
+        assertEquals(countArticles(), blogStatsService.getStats().getArticleCount());
+    }
+
+    @Test
+    void writeAfterReconcilingIsCounted() {
+        blogStatsService.reconcile();
+        long before = blogStatsService.getStats().getArticleCount();
+
+        createArticleConcurrently();
+
+        assertEquals(before + 1, blogStatsService.getStats().getArticleCount());
+        assertEquals(countArticles(), blogStatsService.getStats().getArticleCount());
+    }
+
+    @Test
+    void writeOutsideReconcilingReadsNoTransactionId() {
+        blogStatsService.reconcile();
+        clearInvocations(jdbcTemplate);
+
+        createArticleConcurrently();
+
+        verify(jdbcTemplate, never()).queryForObject(startsWith("select pg_current_xact_id"), eq(Long.class));
+    }
+
+    @Test
+    void writeStillCommittingWhenReconcilingStartsIsCountedOnce() throws Exception {
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> TenantContext.runAs(TenantContext.DEFAULT_TENANT,
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    // Registered first, so it holds up the statistics callback after the commit
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            committed.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                    createArticle();
+                })));
+        committed.await();
+
+        CompletableFuture<Void> reconcile = CompletableFuture.runAsync(blogStatsService::reconcile);
+        // The reconciliation waits for the write, whose change the snapshot then includes
+        Thread.sleep(200);
+        release.countDown();
+        write.join();
+        reconcile.join();
+
+        assertEquals(countArticles(), blogStatsService.getStats().getArticleCount());
+    }
+
+    private void createArticleConcurrently() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Written during reconciliation");
+        request.setContent("Counted exactly once");
+        createdIds.add(CompletableFuture.supplyAsync(() -> TenantContext.callAs(TenantContext.DEFAULT_TENANT,
+                () -> articleService.createArticle(request).getId())).join());
+    }
+
+    private void createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Committing during reconciliation");
+        request.setContent("Counted exactly once");
+        createdIds.add(articleService.createArticle(request).getId());
+    }
+
+    private long countArticles() {
+        return jdbcTemplate.queryForObject("select count(*) from articles where tenant_id = ?", Long.class,
+                TenantContext.DEFAULT_TENANT);
+    }
+}
@@ -0,0 +1,144 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.repository.CommentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class CommentServiceTests {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCreatedArticles() {
+        createdIds.forEach(articleService::deleteArticle);
+    }
+
+    @Test
+    void threadsArePagedAfterTheLastTopLevelComment() {
+        Long article = createArticle();
+        Long first = createComment(article, null);
+        Long second = createComment(article, null);
+        Long reply = createComment(article, second);
+        Long third = createComment(article, null);
+        // Comments of another article never enter the range
+        createComment(createArticle(), null);
+
+        CommentDto.ThreadPage page = commentService.getThreads(article, null, 2, 10);
+        assertEquals(List.of(first, second), ids(page.getThreads()));
+        assertEquals(List.of(reply), ids(page.getThreads().get(1).getReplies()));
+        assertEquals(second, page.getNextAfter());
+
+        CommentDto.ThreadPage next = commentService.getThreads(article, page.getNextAfter(), 2, 10);
+        assertEquals(List.of(third), ids(next.getThreads()));
+        assertNull(next.getNextAfter());
+    }
+
+    @Test
+    void repliesOfEachThreadAreLimitedInDepthFirstOrder() {
+        Long article = createArticle();
+        Long root = createComment(article, null);
+        Long reply = createComment(article, root);
+        Long nested = createComment(article, reply);
+        createComment(article, root);
+        Long otherRoot = createComment(article, null);
+        Long otherReply = createComment(article, otherRoot);
+
+        CommentDto.ThreadPage page = commentService.getThreads(article, null, 10, 2);
+
+        // The later reply to the first comment is cut, but no reply comes without its parent
+        CommentDto.ThreadNode thread = page.getThreads().get(0);
+        assertEquals(List.of(reply), ids(thread.getReplies()));
+        assertEquals(List.of(nested), ids(thread.getReplies().get(0).getReplies()));
+        assertEquals(List.of(otherReply), ids(page.getThreads().get(1).getReplies()));
+    }
+
+    @Test
+    void everyAncestorCountsANewReply() {
+        Long article = createArticle();
+        Long root = createComment(article, null);
+        Long reply = createComment(article, root);
+        Long nested = createComment(article, reply);
+        createComment(article, root);
+
+        CommentDto.ThreadNode thread = commentService.getThread(article, root);
+        assertEquals(3, thread.getReplyCount());
+        assertEquals(1, thread.getReplies().get(0).getReplyCount());
+        assertEquals(0, thread.getReplies().get(0).getReplies().get(0).getReplyCount());
+
+        Integer updated = transactionTemplate.execute(status -> commentRepository.incrementReplyCounts(List.of(root, nested)));
+        assertEquals(2, updated);
+        assertEquals(4, replyCount(root));
+        assertEquals(1, replyCount(reply));
+        assertEquals(1, replyCount(nested));
+    }
+
+    @Test
+    void repliesBeyondTheDeepestLevelAreRejected() {
+        Long article = createArticle();
+        Long root = createComment(article, null);
+        Long parent = root;
+        // The 255 character path holds 15 segments, so depth 14 is the deepest
+        for (int depth = 1; depth <= 14; depth++) {
+            parent = createComment(article, parent);
+        }
+        Long deepest = parent;
+
+        assertThrows(BadRequestException.class, () -> createComment(article, deepest));
+        assertEquals(14, commentService.getThread(article, deepest).getDepth());
+        assertEquals(14, replyCount(root));
+    }
+
+    private Long createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Commented");
+        request.setContent("Has threaded comments");
+        Long id = articleService.createArticle(request).getId();
+        createdIds.add(id);
+        return id;
+    }
+
+    private Long createComment(Long articleId, Long parentId) {
+        CommentDto.Request request = new CommentDto.Request();
+        request.setContent("Comment");
+        request.setParentId(parentId);
+        return commentService.createComment(articleId, request).getId();
+    }
+
+    private int replyCount(Long commentId) {
+        return jdbcTemplate.queryForObject("select reply_count from comments where id = ?", Integer.class, commentId);
+    }
+
+    private static List<Long> ids(List<CommentDto.ThreadNode> nodes) {
+        return nodes.stream().map(CommentDto.ThreadNode::getId).toList();
+    }
+}
@@ -0,0 +1,114 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "blog.coalescing.timeout=200ms")
+@AutoConfigureMockMvc
+class RequestCoalescerTests {
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void waiterTimingOutGets503() throws Exception {
+        Long articleId = createArticle();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // A slow load of the article's comments is in flight when the request arrives
+            CompletableFuture<byte[]> leader = CompletableFuture.supplyAsync(() ->
+                    requestCoalescer.load("comments", articleId, () -> {
+                        started.countDown();
+                        await(release);
+                        return new byte[0];
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            mockMvc.perform(get("/api/articles/{id}/comments", articleId))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.status").value(503));
+
+            release.countDown();
+            leader.join();
+        } finally {
+            release.countDown();
+            articleService.deleteArticle(articleId);
+        }
+    }
+
+    @Test
+    void leaderFailureIsRethrownToWaiters() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Load failed");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Counter collapsed = meterRegistry.counter("blog.coalescing.collapsed", "load", "leader-failure");
+
+        CompletableFuture<Object> leader = CompletableFuture.supplyAsync(() ->
+                requestCoalescer.load("leader-failure", 1L, () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    throw failure;
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() ->
+                requestCoalescer.load("leader-failure", 1L, () -> loads.incrementAndGet()));
+        while (collapsed.count() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(failure, assertThrows(CompletionException.class, leader::join).getCause());
+        assertSame(failure, assertThrows(CompletionException.class, waiter::join).getCause());
+        assertEquals(1, loads.get());
+
+        // The failure is not kept: the next caller loads again
+        assertEquals(2, (int) requestCoalescer.load("leader-failure", 1L, loads::incrementAndGet));
+    }
+
+    private Long createArticle() {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle("Coalesced");
+        request.setContent("Comments loaded once");
+        return articleService.createArticle(request).getId();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
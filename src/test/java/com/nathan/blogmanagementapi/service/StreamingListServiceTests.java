@@ -0,0 +1,151 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.model.ArticleContentConverter;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "blog.list.page-size=2",
+        "blog.content.compression=deflate",
+        "blog.content.compression-threshold=64B"
+})
+class StreamingListServiceTests {
+
+    @Autowired
+    private StreamingListService streamingListService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // A tenant of its own, so the list holds only the articles of the test
+    private final String tenant = "list-test-" + System.nanoTime();
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void createArticles() {
+        shardDirectory.create(tenant, "shard-0");
+        TenantContext.runAs(tenant, () -> {
+            for (int i = 0; i < 5; i++) {
+                // Every other article is long enough to be stored compressed
+                String content = i % 2 == 0 ? "Short content " + i : ("Compressed content " + i + " – ✓. ").repeat(20);
+                ids.add(createArticle("Article " + i, content, i == 0 ? Set.of("b", "a") : Set.of()));
+            }
+        });
+    }
+
+    @AfterEach
+    void deleteTenant() {
+        TenantContext.runAs(tenant, () -> {
+            jdbcTemplate.update("delete from article_tags where article_id in (select id from articles where tenant_id = ?)", tenant);
+            jdbcTemplate.update("delete from comments where tenant_id = ?", tenant);
+            jdbcTemplate.update("delete from articles where tenant_id = ?", tenant);
+        });
+        TenantContext.runOnShard("shard-0", () -> jdbcTemplate.update("delete from tenant_shards where tenant_id = ?", tenant));
+    }
+
+    @Test
+    void articlesAreStreamedLikeTheirResponseDtos() throws IOException {
+        Long commented = ids.get(1);
+        TenantContext.runAs(tenant, () -> {
+            createComment(commented, "First");
+            createComment(commented, "Second");
+        });
+        assertEquals(ArticleContentConverter.FORMAT_DEFLATE, TenantContext.callAs(tenant, () -> jdbcTemplate.queryForObject(
+                "select get_byte(content, 0) from articles where id = ?", Integer.class, commented)).byteValue());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TenantContext.callAs(tenant, streamingListService::openArticles).writeTo(output);
+
+        List<ArticleDto.Response> expected = TenantContext.callAs(tenant, () -> articleService.getArticlesByIds(ids).getArticles());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(expected)), objectMapper.readTree(output.toByteArray()));
+        assertEquals(2, expected.get(1).getCommentCount());
+        assertEquals(List.of("a", "b"), expected.get(0).getTags());
+    }
+
+    @Test
+    void pagesAreFlushedAndContinueAfterTheLastIdSent() throws IOException {
+        List<JsonNode> flushedPages = new ArrayList<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                if (flushedPages.isEmpty()) {
+                    // Shifts the remaining articles forward by one, which offset paging would skip over
+                    articleService.deleteArticle(ids.get(0));
+                }
+                flushedPages.add(readTree(toString() + "]"));
+            }
+        };
+
+        TenantContext.runAs(tenant, () -> {
+            try {
+                streamingListService.openArticles().writeTo(output);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        // Each page reaches the client once it is complete
+        assertEquals(ids.subList(0, 2), idsOf(flushedPages.get(0)));
+        assertEquals(ids.subList(0, 4), idsOf(flushedPages.get(1)));
+        assertEquals(ids, idsOf(objectMapper.readTree(output.toByteArray())));
+    }
+
+    private Long createArticle(String title, String content, Set<String> tags) {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle(title);
+        request.setContent(content);
+        request.setTags(tags);
+        return articleService.createArticle(request).getId();
+    }
+
+    private void createComment(Long articleId, String content) {
+        CommentDto.Request request = new CommentDto.Request();
+        request.setContent(content);
+        commentService.createComment(articleId, request);
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static List<Long> idsOf(JsonNode articles) {
+        List<Long> ids = new ArrayList<>();
+        articles.forEach(article -> ids.add(article.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,222 @@
+package com.nathan.blogmanagementapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.blogmanagementapi.dto.ArticleDto;
+import com.nathan.blogmanagementapi.dto.CommentDto;
+import com.nathan.blogmanagementapi.dto.TenantDto;
+import com.nathan.blogmanagementapi.exception.BadRequestException;
+import com.nathan.blogmanagementapi.sharding.ShardDirectory;
+import com.nathan.blogmanagementapi.sharding.Shards;
+import com.nathan.blogmanagementapi.sharding.TenantContext;
+import com.nathan.blogmanagementapi.sharding.TenantFence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = {
+        "blog.sharding.shards.shard-1.number=1",
+        "blog.sharding.shards.shard-1.url=jdbc:postgresql://localhost:5432/blog_shard_1",
+        "blog.sharding.move-batch-size=2"
+})
+class TenantServiceTests {
+
+    private static final String PRIMARY = "shard-0";
+    private static final String SECOND = "shard-1";
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private TenantFence tenantFence;
+
+    private final String tenant = "move-test-" + System.nanoTime();
+
+    @AfterEach
+    void deleteTenant() {
+        for (String shard : List.of(PRIMARY, SECOND)) {
+            TenantContext.runOnShard(shard, () -> {
+                jdbcTemplate.update("delete from article_tags where article_id in (select id from articles where tenant_id = ?)", tenant);
+                jdbcTemplate.update("delete from comments where tenant_id = ?", tenant);
+                jdbcTemplate.update("delete from articles where tenant_id = ?", tenant);
+                jdbcTemplate.update("delete from tenant_fences where tenant_id = ?", tenant);
+            });
+        }
+        TenantContext.runOnShard(PRIMARY, () -> jdbcTemplate.update("delete from tenant_shards where tenant_id = ?", tenant));
+    }
+
+    @Test
+    void moveCatchesUpWithWritesMadeDuringTheMove() throws Exception {
+        shardDirectory.create(tenant, PRIMARY);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String title = "Article " + i;
+            ids.add(asTenant(() -> createArticle(title, Set.of("moved"))).getId());
+        }
+        asTenant(() -> createComment(ids.get(0), "Copied"));
+        asTenant(() -> createComment(ids.get(0), "Copied too"));
+
+        List<CompletableFuture<ArticleDto.Response>> waiting = new ArrayList<>();
+        doAnswer(invocation -> {
+            // Written after the rows were copied, so only the final synchronization moves them
+            JsonNode patch = new ObjectMapper().readTree("{\"title\": \"Changed after the copy\", \"tags\": [\"changed\"]}");
+            asTenant(() -> articleService.patchArticle(ids.get(1), patch, null));
+            asTenant(() -> {
+                articleService.deleteArticle(ids.get(2));
+                return null;
+            });
+            asTenant(() -> createComment(ids.get(0), "Written after the copy"));
+            ids.add(asTenant(() -> createArticle("Created after the copy", Set.of())).getId());
+
+            Object fenced = invocation.callRealMethod();
+            // Waits for the fence and then writes to the new shard
+            waiting.add(CompletableFuture.supplyAsync(() -> TenantContext.callAs(tenant,
+                    () -> createArticle("Written while fenced", Set.of()))));
+            return fenced;
+        }).when(tenantFence).close(eq(tenant), eq(PRIMARY), eq(SECOND));
+
+        TenantDto.MoveResponse response = tenantService.moveTenant(tenant, SECOND);
+        Long fencedWrite = waiting.get(0).join().getId();
+
+        assertEquals(5, response.getArticlesCopied());
+        assertEquals(2, response.getCommentsCopied());
+        assertEquals(SECOND, shardDirectory.shardOf(tenant));
+        assertEquals(1, Shards.idBlock(fencedWrite));
+
+        assertEquals(0, count(PRIMARY, "select count(*) from articles where tenant_id = ?"));
+        assertEquals(0, count(PRIMARY, "select count(*) from comments where tenant_id = ?"));
+
+        Set<Long> expected = new HashSet<>(ids);
+        expected.remove(ids.get(2));
+        expected.add(fencedWrite);
+        assertEquals(expected, TenantContext.callOnShard(SECOND, () -> new HashSet<>(jdbcTemplate.queryForList(
+                "select id from articles where tenant_id = ?", Long.class, tenant))));
+        assertEquals(3, count(SECOND, "select count(*) from comments where tenant_id = ?"));
+        assertEquals("Changed after the copy", TenantContext.callOnShard(SECOND, () -> jdbcTemplate.queryForObject(
+                "select title from articles where id = ?", String.class, ids.get(1))));
+        assertEquals(List.of("changed"), TenantContext.callOnShard(SECOND, () -> jdbcTemplate.queryForList(
+                "select tag from article_tags where article_id = ?", String.class, ids.get(1))));
+        assertEquals(0, count(SECOND, "select count(*) from tenant_fences where tenant_id = ?"));
+    }
+
+    @Test
+    void moveToThePrimaryShardCommitsEveryStep() {
+        shardDirectory.create(tenant, SECOND);
+        Long article = asTenant(() -> createArticle("Moved home", Set.of("home"))).getId();
+        asTenant(() -> createComment(article, "Moved along"));
+
+        // Requests resume on the primary shard once the fence opens, so the copy must be committed by then
+        AtomicLong visibleWhenOpened = new AtomicLong(-1);
+        doAnswer(invocation -> {
+            visibleWhenOpened.set(CompletableFuture.supplyAsync(
+                    () -> count(PRIMARY, "select count(*) from articles where tenant_id = ?")).join());
+            return invocation.callRealMethod();
+        }).when(tenantFence).open(any(), eq(tenant), eq(SECOND), eq(true));
+
+        TenantDto.MoveResponse response = tenantService.moveTenant(tenant, PRIMARY);
+
+        assertEquals(1, visibleWhenOpened.get());
+        assertEquals(1, response.getArticlesCopied());
+        assertEquals(1, response.getCommentsCopied());
+        assertEquals(PRIMARY, shardDirectory.shardOf(tenant));
+        assertEquals(List.of(article), TenantContext.callOnShard(PRIMARY, () -> jdbcTemplate.queryForList(
+                "select id from articles where tenant_id = ?", Long.class, tenant)));
+        assertEquals(1, count(PRIMARY, "select count(*) from comments where tenant_id = ?"));
+        assertEquals(List.of("home"), TenantContext.callOnShard(PRIMARY, () -> jdbcTemplate.queryForList(
+                "select tag from article_tags where article_id = ?", String.class, article)));
+        assertEquals(1, count(SECOND, "select count(*) from tenant_fences where tenant_id = ?"));
+        assertEquals(0, count(SECOND, "select count(*) from articles where tenant_id = ?"));
+        assertEquals(0, count(SECOND, "select count(*) from comments where tenant_id = ?"));
+
+        ArticleDto.Response created = asTenant(() -> createArticle("Written after the move", Set.of()));
+        assertEquals(0, Shards.idBlock(created.getId()));
+    }
+
+    @Test
+    void returnedConnectionsKeepTheTenantLockUntilTheMove() {
+        shardDirectory.create(tenant, PRIMARY);
+        asTenant(() -> createArticle("Locked", Set.of()));
+        asTenant(() -> createArticle("Still locked", Set.of()));
+
+        // The lock outlives the requests, so the next request on the connection skips the fence check
+        assertTrue(heldLocks(PRIMARY) > 0);
+
+        tenantService.moveTenant(tenant, SECOND);
+
+        assertEquals(0, heldLocks(PRIMARY));
+        assertEquals(2, count(SECOND, "select count(*) from articles where tenant_id = ?"));
+    }
+
+    @Test
+    void moveToTheCurrentShardIsRejected() {
+        shardDirectory.create(tenant, PRIMARY);
+        asTenant(() -> createArticle("Stays", Set.of()));
+
+        assertThrows(BadRequestException.class, () -> tenantService.moveTenant(tenant, PRIMARY));
+        assertEquals(PRIMARY, shardDirectory.shardOf(tenant));
+        assertEquals(1, count(PRIMARY, "select count(*) from articles where tenant_id = ?"));
+    }
+
+    private ArticleDto.Response createArticle(String title, Set<String> tags) {
+        return articleService.createArticle(request(title, tags));
+    }
+
+    private CommentDto.Response createComment(Long articleId, String content) {
+        CommentDto.Request request = new CommentDto.Request();
+        request.setContent(content);
+        return commentService.createComment(articleId, request);
+    }
+
+    private static ArticleDto.Request request(String title, Set<String> tags) {
+        ArticleDto.Request request = new ArticleDto.Request();
+        request.setTitle(title);
+        request.setContent("Content of " + title);
+        request.setTags(tags);
+        return request;
+    }
+
+    // Runs as the tenant on another thread, like a request served during the move
+    private <T> T asTenant(Supplier<T> action) {
+        return CompletableFuture.supplyAsync(() -> TenantContext.callAs(tenant, action)).join();
+    }
+
+    private long heldLocks(String shard) {
+        return count(shard, "select count(*) from pg_locks where locktype = 'advisory' and granted " +
+                "and database = (select oid from pg_database where datname = current_database()) " +
+                "and classid = 1952804468 and objid = hashtext(?)::oid and objsubid = 2"); // TenantFence lock namespace
+    }
+
+    private long count(String shard, String sql) {
+        return TenantContext.callOnShard(shard, () -> jdbcTemplate.queryForObject(sql, Long.class, tenant));
+    }
+}
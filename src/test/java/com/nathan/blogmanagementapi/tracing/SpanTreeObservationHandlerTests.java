@@ -0,0 +1,75 @@
+package com.nathan.blogmanagementapi.tracing;
+
+import io.micrometer.observation.Observation;
+import net.ttddyy.observation.tracing.QueryContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class SpanTreeObservationHandlerTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private SpanTreeObservationHandler spanTreeObservationHandler;
+
+    @Test
+    void countsBoundParameters() {
+        jdbcTemplate.queryForObject("select count(*) from articles where id = ? or id = ? /* two */", Long.class, 1L, 2L);
+        jdbcTemplate.queryForObject("select count(*) from articles /* none */", Long.class);
+
+        assertEquals(2, countParameters("/* two */"));
+        assertEquals(0, countParameters("/* none */"));
+    }
+
+    @Test
+    void ignoresQuestionMarksThatAreNotParameters() {
+        jdbcTemplate.queryForObject("select count(*) from articles where title = 'Why?' and id = ? /* literal */", Long.class, 1L);
+        // A doubled quote escapes a quote without ending the literal
+        jdbcTemplate.queryForObject("select count(*) from articles where 'it''s ?' <> title and id = ? /* escaped */", Long.class, 1L);
+
+        assertEquals(1, countParameters("/* literal */"));
+        assertEquals(1, countParameters("/* escaped */"));
+    }
+
+    @Test
+    void countsTheParametersOfEveryBatchEntry() {
+        jdbcTemplate.batchUpdate("update articles set title = title where id = ? and version = ? /* batch */",
+                List.of(new Object[]{1L, 0L}, new Object[]{2L, 0L}, new Object[]{3L, 0L}));
+
+        assertEquals(6, countParameters("/* batch */"));
+    }
+
+    @Test
+    void recordsNoParameterValues() {
+        jdbcTemplate.queryForObject("select count(*) from articles where title = ? /* values */", Long.class, "Secret title");
+
+        assertEquals(List.of("1"), query("/* values */").getParams());
+    }
+
+    private int countParameters(String marker) {
+        return SpanTreeObservationHandler.countParameters(query(marker));
+    }
+
+    // Finds the observation of the statement carrying the marker among those the handler saw
+    private QueryContext query(String marker) {
+        ArgumentCaptor<Observation.Context> contexts = ArgumentCaptor.forClass(Observation.Context.class);
+        verify(spanTreeObservationHandler, atLeastOnce()).onStop(contexts.capture());
+        return contexts.getAllValues().stream()
+                .filter(context -> context instanceof QueryContext query && String.join(";", query.getQueries()).contains(marker))
+                .map(QueryContext.class::cast)
+                .reduce((first, second) -> second)
+                .orElseThrow();
+    }
+}